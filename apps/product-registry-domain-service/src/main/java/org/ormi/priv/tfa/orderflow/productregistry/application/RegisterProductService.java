@@ -1,10 +1,7 @@
 package org.ormi.priv.tfa.orderflow.productregistry.application;
 
 import org.ormi.priv.tfa.orderflow.cqrs.EventEnvelope;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRepository;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventJournal;
 import org.ormi.priv.tfa.orderflow.kernel.Product;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductRegistered;
 import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductRepository;
@@ -27,25 +24,21 @@ import jakarta.transaction.Transactional;
 public class RegisterProductService {
 
     private final ProductRepository repository;
-    private final EventLogRepository eventLog;
-    private final OutboxRepository outbox;
+    private final EventJournal journal;
 
     /**
      * Constructeur avec injection des dépendances.
      *
      * @param repository repository pour gérer les produits
-     * @param eventLog repository pour l’enregistrement des événements
-     * @param outbox repository pour publier les événements externes
+     * @param journal journal d’événements, écrivant l’event log et l’outbox
      */
     @Inject
     public RegisterProductService(
         ProductRepository repository,
-        EventLogRepository eventLog,
-        OutboxRepository outbox
+        EventJournal journal
     ) {
         this.repository = repository;
-        this.eventLog = eventLog;
-        this.outbox = outbox;
+        this.journal = journal;
     }
 
     /**
@@ -74,12 +67,8 @@ public class RegisterProductService {
         EventEnvelope<ProductRegistered> evt = EventEnvelope.with(
                 new ProductRegistered(product.getId(), product.getSkuId(), cmd.name(), cmd.description()),
                 product.getVersion());
-        // Appends event to the log
-        final EventLogEntity persistedEvent = eventLog.append(evt);
-        // Publish outbox
-        outbox.publish(OutboxEntity.Builder()
-                .sourceEvent(persistedEvent)
-                .build());
+        // Appends event to the log and publishes it to the outbox in one statement
+        journal.appendAndEnqueue(evt);
         return product.getId();
     }
 }
\ No newline at end of file
@@ -1,10 +1,7 @@
 package org.ormi.priv.tfa.orderflow.productregistry.application;
 
 import org.ormi.priv.tfa.orderflow.cqrs.EventEnvelope;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRepository;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventJournal;
 import org.ormi.priv.tfa.orderflow.kernel.Product;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductRetired;
 import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductRepository;
@@ -29,10 +26,7 @@ public class RetireProductService {
     ProductRepository repository;
 
     @Inject
-    EventLogRepository eventLog;
-
-    @Inject
-    OutboxRepository outbox;
+    EventJournal journal;
 
     /**
      * Retire un produit existant.
@@ -46,11 +40,7 @@ public class RetireProductService {
                 .orElseThrow(() -> new IllegalArgumentException("Product not found"));
         EventEnvelope<ProductRetired> evt = product.retire();
         repository.save(product);
-        // Append event to the log
-        final EventLogEntity persistedEvent = eventLog.append(evt);
-        // Publish outbox
-        outbox.publish(OutboxEntity.Builder()
-                .sourceEvent(persistedEvent)
-                .build());
+        // Append event to the log and publish it to the outbox in one statement
+        journal.appendAndEnqueue(evt);
     }
 }
@@ -1,10 +1,7 @@
 package org.ormi.priv.tfa.orderflow.productregistry.application;
 
 import org.ormi.priv.tfa.orderflow.cqrs.EventEnvelope;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRepository;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventJournal;
 import org.ormi.priv.tfa.orderflow.kernel.Product;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductDescriptionUpdated;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductNameUpdated;
@@ -27,25 +24,21 @@ import jakarta.transaction.Transactional;
 public class UpdateProductService {
 
     private final ProductRepository repository;
-    private final EventLogRepository eventLog;
-    private final OutboxRepository outbox;
+    private final EventJournal journal;
 
     /**
      * Constructeur avec injection des dépendances.
      *
      * @param repository repository pour gérer les produits
-     * @param eventLog repository pour l’enregistrement des événements
-     * @param outbox repository pour publier les événements externes
+     * @param journal journal d’événements, écrivant l’event log et l’outbox
      */
     @Inject
     public UpdateProductService(
         ProductRepository repository,
-        EventLogRepository eventLog,
-        OutboxRepository outbox
+        EventJournal journal
     ) {
         this.repository = repository;
-        this.eventLog = eventLog;
-        this.outbox = outbox;
+        this.journal = journal;
     }
 
     /**
@@ -60,12 +53,7 @@ public class UpdateProductService {
                 .orElseThrow(() -> new IllegalArgumentException("Product not found"));
         EventEnvelope<ProductNameUpdated> event = product.updateName(cmd.newName());
         repository.save(product);
-        final EventLogEntity persistedEvent = eventLog.append(event);
-        outbox.publish(
-            OutboxEntity.Builder()
-                .sourceEvent(persistedEvent)
-                .build()
-        );
+        journal.appendAndEnqueue(event);
     }
 
     /**
@@ -80,11 +68,6 @@ public class UpdateProductService {
                 .orElseThrow(() -> new IllegalArgumentException("Product not found"));
         EventEnvelope<ProductDescriptionUpdated> event = product.updateDescription(cmd.newDescription());
         repository.save(product);
-        final EventLogEntity persistedEvent = eventLog.append(event);
-        outbox.publish(
-            OutboxEntity.Builder()
-                .sourceEvent(persistedEvent)
-                .build()
-        );
+        journal.appendAndEnqueue(event);
     }
 }
@@ -0,0 +1,217 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRepository;
+import org.ormi.priv.tfa.orderflow.kernel.Product;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Tampon de réordonnancement des événements produit, par agrégat, utilisé par le
+ * {@link ProjectionDispatcher}.
+ * <p>
+ * Un événement dont la séquence dépasse la version de la vue plus un est retenu ici
+ * au lieu d’être rejeté. Dès que l’événement manquant est projeté, les événements
+ * retenus qui le suivent sans trou sont libérés et appliqués dans la même transaction.
+ * Si le trou persiste au-delà de {@code orderflow.projection.reorder.gap-timeout}, les
+ * séquences manquantes sont lues directement dans l’event log. Lorsque l’une d’elles ne
+ * peut pas être projetée, la lecture suivante n’a lieu qu’après {@code FAILED_GAP_RETRY_DELAY}.
+ * </p>
+ * <p>
+ * Le tampon n’est qu’une accélération : un événement retenu n’est pas acquitté par le
+ * consommateur et sera de nouveau livré ; une fois libéré, sa nouvelle livraison est
+ * reconnue comme déjà appliquée (voir {@link ProductViewWatermarks}) et acquittée. Les
+ * entrées peuvent donc être abandonnées sans perte : au-delà de
+ * {@code MAX_HELD_AGGREGATES} agrégats retenus, le plus ancien est évincé.
+ * </p>
+ * <p>
+ * Les métriques {@code projection.reorder.held} (événements retenus),
+ * {@code projection.reorder.released} (événements libérés) et
+ * {@code projection.reorder.gap.fetched} (événements lus dans l’event log) permettent
+ * de suivre les livraisons hors ordre.
+ * </p>
+ */
+@ApplicationScoped
+public class ProductEventReorderBuffer {
+
+    /** Clé de configuration du délai avant lecture des séquences manquantes dans l’event log */
+    public static final String GAP_TIMEOUT_CONFIG_KEY = "orderflow.projection.reorder.gap-timeout";
+
+    private static final String PRODUCT_AGGREGATE_TYPE = Product.class.getSimpleName();
+    private static final int MAX_HELD_AGGREGATES = 10_000;
+    private static final int MAX_HELD_EVENTS_PER_AGGREGATE = 1_000;
+    private static final Duration FAILED_GAP_RETRY_DELAY = Duration.ofSeconds(30);
+
+    /**
+     * Événements retenus d’un agrégat.
+     *
+     * @param events événements retenus, par séquence
+     * @param fillNotBeforeNanos instant à partir duquel les séquences manquantes sont lues
+     *                           dans l’event log, en {@link System#nanoTime()}
+     */
+    private record HeldEvents(NavigableMap<Long, ProductEventV1Envelope<?>> events, long fillNotBeforeNanos) {
+    }
+
+    private final EventLogRepository eventLog;
+    private final ProductEventJpaMapper mapper;
+    private final Duration gapTimeout;
+    private final Counter eventsReleased;
+    private final Counter eventsFetched;
+    private final Map<UUID, HeldEvents> held = new LinkedHashMap<>();
+    private int heldEvents;
+
+    /**
+     * Constructeur avec injection des dépendances.
+     *
+     * @param eventLog journal des événements, source des séquences manquantes
+     * @param mapper conversion des entrées de l’event log en événements produit
+     * @param registry registre des métriques
+     * @param gapTimeout délai au-delà duquel les séquences manquantes sont lues dans l’event log
+     */
+    @Inject
+    public ProductEventReorderBuffer(
+            EventLogRepository eventLog,
+            ProductEventJpaMapper mapper,
+            MeterRegistry registry,
+            @ConfigProperty(name = GAP_TIMEOUT_CONFIG_KEY, defaultValue = "200ms") Duration gapTimeout) {
+        this.eventLog = eventLog;
+        this.mapper = mapper;
+        this.gapTimeout = gapTimeout;
+        Gauge.builder("projection.reorder.held", this, ProductEventReorderBuffer::heldCount)
+                .description("Out-of-order product events held until the missing sequences are projected")
+                .register(registry);
+        this.eventsReleased = Counter.builder("projection.reorder.released")
+                .description("Held product events applied once the missing sequences were projected")
+                .register(registry);
+        this.eventsFetched = Counter.builder("projection.reorder.gap.fetched")
+                .description("Missing product events read from the event log after the gap timeout")
+                .register(registry);
+    }
+
+    /**
+     * Retient des événements en avance sur la vue de leur agrégat.
+     *
+     * @param events événements d’un même agrégat
+     * @return {@code true} si le trou est ouvert depuis plus que le délai configuré (ou que
+     *         le délai fixé par {@link #deferGapFill}), les séquences manquantes devant alors
+     *         être lues via {@link #readMissing}
+     */
+    public synchronized boolean hold(List<ProductEventV1Envelope<?>> events) {
+        final UUID aggregateId = events.get(0).aggregateId();
+        HeldEvents entry = held.get(aggregateId);
+        if (entry == null) {
+            if (held.size() >= MAX_HELD_AGGREGATES) {
+                // Tampon plein : le plus ancien agrégat retenu sera de nouveau livré
+                final Map.Entry<UUID, HeldEvents> eldest = held.entrySet().iterator().next();
+                heldEvents -= eldest.getValue().events().size();
+                held.remove(eldest.getKey());
+            }
+            entry = new HeldEvents(new TreeMap<>(), System.nanoTime() + gapTimeout.toNanos());
+            held.put(aggregateId, entry);
+        }
+        for (ProductEventV1Envelope<?> event : events) {
+            if (entry.events().size() < MAX_HELD_EVENTS_PER_AGGREGATE
+                    && entry.events().putIfAbsent(event.sequence(), event) == null) {
+                heldEvents++;
+            }
+        }
+        return System.nanoTime() - entry.fillNotBeforeNanos() >= 0;
+    }
+
+    /**
+     * Diffère la prochaine lecture des séquences manquantes d’un agrégat, l’une d’elles
+     * ne pouvant pas être projetée.
+     *
+     * @param aggregateId identifiant de l’agrégat
+     */
+    public synchronized void deferGapFill(UUID aggregateId) {
+        final HeldEvents entry = held.get(aggregateId);
+        if (entry != null) {
+            held.put(aggregateId, new HeldEvents(entry.events(),
+                    System.nanoTime() + FAILED_GAP_RETRY_DELAY.toNanos()));
+        }
+    }
+
+    /**
+     * Lit dans l’event log les événements d’un agrégat depuis la séquence attendue
+     * jusqu’à la plus haute séquence retenue.
+     *
+     * @param aggregateId identifiant de l’agrégat
+     * @param fromSequence première séquence manquante
+     * @return les événements lus, triés par séquence
+     */
+    public List<ProductEventV1Envelope<?>> readMissing(UUID aggregateId, long fromSequence) {
+        final long toSequence;
+        synchronized (this) {
+            final HeldEvents entry = held.get(aggregateId);
+            if (entry == null || entry.events().isEmpty()) {
+                return List.of();
+            }
+            toSequence = entry.events().lastKey();
+        }
+        final List<ProductEventV1Envelope<?>> events = eventLog
+                .readAggregateRange(PRODUCT_AGGREGATE_TYPE, aggregateId, fromSequence, toSequence)
+                .stream()
+                .<ProductEventV1Envelope<?>>map(mapper::toProductEventV1)
+                .toList();
+        eventsFetched.increment(events.size());
+        return events;
+    }
+
+    /**
+     * Retire les événements retenus déjà couverts par la vue et libère ceux qui la
+     * suivent sans trou.
+     *
+     * @param aggregateId identifiant de l’agrégat
+     * @param version version courante de la vue
+     * @return les événements à appliquer, triés par séquence
+     */
+    public synchronized List<ProductEventV1Envelope<?>> release(UUID aggregateId, long version) {
+        final HeldEvents entry = held.get(aggregateId);
+        if (entry == null) {
+            return List.of();
+        }
+        final NavigableMap<Long, ProductEventV1Envelope<?>> covered = entry.events().headMap(version, true);
+        heldEvents -= covered.size();
+        covered.clear();
+        final List<ProductEventV1Envelope<?>> ready = new ArrayList<>();
+        long next = version + 1;
+        while (!entry.events().isEmpty() && entry.events().firstKey() == next) {
+            ready.add(entry.events().pollFirstEntry().getValue());
+            heldEvents--;
+            next++;
+        }
+        if (entry.events().isEmpty()) {
+            held.remove(aggregateId);
+        }
+        return ready;
+    }
+
+    /**
+     * Compte les événements appliqués depuis le tampon ou l’event log.
+     *
+     * @param count nombre d’événements appliqués
+     */
+    public void recordReleased(int count) {
+        eventsReleased.increment(count);
+    }
+
+    private synchronized int heldCount() {
+        return heldEvents;
+    }
+}
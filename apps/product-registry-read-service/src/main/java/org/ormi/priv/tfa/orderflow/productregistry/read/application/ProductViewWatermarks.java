@@ -0,0 +1,118 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Watermarks des vues produit : plus haute version appliquée par agrégat, utilisés par le
+ * {@link ProjectionDispatcher} pour reconnaître une livraison en double avant toute
+ * lecture de la vue.
+ * <p>
+ * La version persistée de chaque vue ({@code product_view._version}, écrite dans la même
+ * transaction que la vue) fait foi ; ce registre en garde en mémoire une copie pour les
+ * {@code MAX_WATERMARKS} agrégats les plus récemment projetés (éviction LRU). Il est
+ * alimenté par les vues lues et par les vues projetées, ces dernières seulement une fois
+ * leur transaction validée : un watermark ne dépasse ainsi jamais la version réellement
+ * persistée, et un événement qu’il couvre peut être acquitté sans risque de perte. Avec
+ * l’écriture différée, il peut devancer la base de vues encore en cache, celles-ci étant
+ * persistées avant tout acquittement.
+ * </p>
+ * <p>
+ * Les versions d’une vue ne faisant que croître, un watermark reste une borne inférieure
+ * valide même lorsque l’agrégat est projeté entre-temps par une autre instance. Les
+ * livraisons écartées sont comptées par {@code projection.duplicates.skipped}.
+ * </p>
+ */
+@ApplicationScoped
+public class ProductViewWatermarks {
+
+    private static final int MAX_WATERMARKS = 50_000;
+
+    private final TransactionSynchronizationRegistry transactions;
+    private final Counter duplicatesSkipped;
+    private final Map<UUID, Long> watermarks = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+            return size() > MAX_WATERMARKS;
+        }
+    };
+
+    /**
+     * Constructeur avec injection des dépendances.
+     *
+     * @param transactions registre des synchronisations de la transaction courante
+     * @param registry registre des métriques
+     */
+    @Inject
+    public ProductViewWatermarks(TransactionSynchronizationRegistry transactions, MeterRegistry registry) {
+        this.transactions = transactions;
+        this.duplicatesSkipped = Counter.builder("projection.duplicates.skipped")
+                .description("Duplicate product event deliveries acknowledged without reading the view")
+                .register(registry);
+    }
+
+    /**
+     * Indique si un événement est déjà appliqué à la vue de son agrégat. Une réponse
+     * positive est comptée comme une livraison en double écartée.
+     *
+     * @param aggregateId identifiant de l’agrégat
+     * @param sequence séquence de l’événement
+     * @return {@code true} si la séquence est couverte par le watermark de l’agrégat
+     */
+    public boolean isApplied(UUID aggregateId, long sequence) {
+        final Long watermark;
+        synchronized (this) {
+            watermark = watermarks.get(aggregateId);
+        }
+        if (watermark == null || sequence > watermark) {
+            return false;
+        }
+        duplicatesSkipped.increment();
+        return true;
+    }
+
+    /**
+     * Relève le watermark d’un agrégat à la version d’une vue lue en base.
+     *
+     * @param aggregateId identifiant de l’agrégat
+     * @param version version persistée de la vue
+     */
+    public void seed(UUID aggregateId, long version) {
+        advance(aggregateId, version);
+    }
+
+    /**
+     * Relève le watermark d’un agrégat à la version d’une vue projetée, une fois la
+     * transaction courante validée. Sans effet si elle est annulée.
+     *
+     * @param aggregateId identifiant de l’agrégat
+     * @param version version de la vue projetée
+     */
+    public void advanceOnCommit(UUID aggregateId, long version) {
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    advance(aggregateId, version);
+                }
+            }
+        });
+    }
+
+    private synchronized void advance(UUID aggregateId, long version) {
+        watermarks.merge(aggregateId, version, Math::max);
+    }
+}
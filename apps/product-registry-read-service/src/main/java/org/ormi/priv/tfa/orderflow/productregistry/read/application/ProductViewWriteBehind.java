@@ -0,0 +1,269 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.application;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Cache en écriture différée des vues produit, utilisé par le {@link ProjectionDispatcher}.
+ * <p>
+ * Les vues les plus récemment projetées sont conservées en mémoire (au plus
+ * {@code MAX_CACHED_VIEWS}, éviction LRU des seules vues propres). Un événement est
+ * appliqué à la vue en mémoire, qui devient sale ; les vues sales sont persistées en une
+ * transaction toutes les {@code FLUSH_INTERVAL}, dès {@code FLUSH_THRESHOLD} vues sales,
+ * et à chaque {@link #flush()} explicite. Plusieurs événements d’un produit très sollicité
+ * ne coûtent ainsi qu’une écriture de sa vue.
+ * </p>
+ * <p>
+ * Les consommateurs appellent {@link #flush()} (via
+ * {@link org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxEventHandler#flush()}) avant
+ * d’acquitter des messages ou d’avancer leur point de reprise : un événement n’est acquitté
+ * qu’une fois sa vue validée en base, ce qui préserve la livraison au moins une fois. Les
+ * lectures de {@link ReadProductService} passent par la base et voient les vues dès leur
+ * écriture.
+ * </p>
+ * <p>
+ * Désactivé par défaut ({@code orderflow.projection.write-behind.enabled}). Le cache
+ * suppose que cette instance est la seule à projeter les agrégats qu’elle détient : les
+ * vues propres doivent être évincées ({@link #evictClean()}) lorsque de nouveaux agrégats
+ * lui sont attribués.
+ * </p>
+ */
+@ApplicationScoped
+public class ProductViewWriteBehind {
+
+    /** Clé de configuration activant l’écriture différée */
+    public static final String ENABLED_CONFIG_KEY = "orderflow.projection.write-behind.enabled";
+
+    private static final int MAX_CACHED_VIEWS = 10_000;
+    private static final int FLUSH_THRESHOLD = 500;
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(100);
+
+    private static final Logger LOG = Logger.getLogger(ProductViewWriteBehind.class);
+
+    /**
+     * Vue en cache.
+     *
+     * @param view dernière vue projetée
+     * @param dirty {@code true} si la vue n’est pas encore persistée
+     */
+    private record CachedView(ProductView view, boolean dirty) {
+    }
+
+    private final ProductViewRepository repository;
+    private final boolean enabled;
+    private final ScheduledExecutorService flushScheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "projection-write-behind"));
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean thresholdFlushPending = new AtomicBoolean(false);
+    private final Counter viewsFlushed;
+    private final Map<UUID, CachedView> views = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, CachedView> eldest) {
+            // Une vue sale n’est jamais évincée : seul un vidage la rend évinçable
+            return size() > MAX_CACHED_VIEWS && !eldest.getValue().dirty();
+        }
+    };
+    private int dirtyViews;
+
+    @Inject
+    public ProductViewWriteBehind(
+            ProductViewRepository repository,
+            MeterRegistry registry,
+            @ConfigProperty(name = ENABLED_CONFIG_KEY, defaultValue = "false") boolean enabled) {
+        this.repository = repository;
+        this.enabled = enabled;
+        Gauge.builder("projection.write-behind.dirty", this, ProductViewWriteBehind::dirtyCount)
+                .description("Product views projected in memory and not yet persisted")
+                .register(registry);
+        this.viewsFlushed = Counter.builder("projection.write-behind.flushed")
+                .description("Product views persisted by the write-behind cache")
+                .register(registry);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL.toMillis(),
+                FLUSH_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        LOG.info("Product view write-behind enabled");
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flushScheduler.shutdownNow();
+        if (enabled) {
+            flushQuietly();
+        }
+    }
+
+    /**
+     * @return {@code true} si l’écriture différée est activée
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Retourne la vue d’un produit, depuis le cache ou, à défaut, depuis {@code loader}.
+     * Une vue chargée est mise en cache comme propre.
+     *
+     * @param id identifiant du produit
+     * @param loader lecture de la vue en base
+     * @return la vue courante, vide si le produit est inconnu
+     */
+    public Optional<ProductView> load(ProductId id, Supplier<Optional<ProductView>> loader) {
+        synchronized (this) {
+            final CachedView cached = views.get(id.value());
+            if (cached != null) {
+                return Optional.of(cached.view());
+            }
+        }
+        final Optional<ProductView> loaded = loader.get();
+        loaded.ifPresent(view -> {
+            synchronized (this) {
+                views.putIfAbsent(id.value(), new CachedView(view, false));
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Remplace la vue d’un produit en cache ; elle sera persistée au prochain vidage.
+     *
+     * @param view vue projetée
+     */
+    public void put(ProductView view) {
+        final int dirty;
+        synchronized (this) {
+            final CachedView previous = views.put(view.getId().value(), new CachedView(view, true));
+            if (previous == null || !previous.dirty()) {
+                dirtyViews++;
+            }
+            dirty = dirtyViews;
+        }
+        if (dirty >= FLUSH_THRESHOLD && thresholdFlushPending.compareAndSet(false, true)) {
+            try {
+                flushScheduler.execute(() -> {
+                    thresholdFlushPending.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // Scheduler arrêté, le vidage final est fait à l’arrêt
+                thresholdFlushPending.set(false);
+            }
+        }
+    }
+
+    /**
+     * Persiste en une transaction toutes les vues sales.
+     * <p>
+     * Au retour, toute vue mise en cache avant l’appel est validée en base. Les vidages
+     * sont sérialisés ; en cas d’échec, les vues restent sales et seront retentées.
+     * </p>
+     *
+     * @throws RuntimeException si la persistance a échoué
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            final Map<UUID, ProductView> batch = new LinkedHashMap<>();
+            synchronized (this) {
+                views.forEach((id, cached) -> {
+                    if (cached.dirty()) {
+                        batch.put(id, cached.view());
+                    }
+                });
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            persist(batch.values());
+            viewsFlushed.increment(batch.size());
+            synchronized (this) {
+                batch.forEach((id, flushed) -> {
+                    final CachedView current = views.get(id);
+                    if (current == null) {
+                        return;
+                    }
+                    if (current.view() == flushed) {
+                        views.put(id, new CachedView(withPendingEventsAfter(flushed, flushed.getVersion()), false));
+                        dirtyViews--;
+                    } else {
+                        // Projetée de nouveau pendant le vidage : seuls les nouveaux événements restent à ajouter
+                        views.put(id, new CachedView(withPendingEventsAfter(current.view(), flushed.getVersion()),
+                                true));
+                    }
+                });
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Évince les vues propres, qui peuvent être relues en base.
+     * <p>
+     * À appeler lorsque des agrégats projetés ailleurs sont attribués à cette instance,
+     * leurs vues en cache pouvant être périmées.
+     * </p>
+     */
+    public synchronized void evictClean() {
+        views.values().removeIf(cached -> !cached.dirty());
+    }
+
+    @Transactional
+    void persist(Collection<ProductView> batch) {
+        batch.forEach(repository::save);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOG.errorf("Failed to flush product views, will retry: %s", e.getMessage());
+        }
+    }
+
+    private synchronized int dirtyCount() {
+        return dirtyViews;
+    }
+
+    private static ProductView withPendingEventsAfter(ProductView view, long version) {
+        if (view.getEvents().isEmpty()) {
+            return view;
+        }
+        return ProductView.Builder()
+                .with(view)
+                .events(view.getEvents().stream()
+                        .filter(e -> e.getSequence() > version)
+                        .toList())
+                .build();
+    }
+}
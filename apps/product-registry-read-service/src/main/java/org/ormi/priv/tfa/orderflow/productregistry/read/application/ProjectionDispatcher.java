@@ -1,7 +1,10 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.application;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
+import org.jboss.logging.Logger;
 import org.ormi.priv.tfa.orderflow.contracts.productregistry.v1.read.ProductStreamElementDto;
 import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
 import org.ormi.priv.tfa.orderflow.kernel.Product;
@@ -24,15 +27,39 @@ import jakarta.transaction.Transactional;
  * pour mettre à jour les vues {@link ProductView}. Elle diffuse ensuite
  * les changements via {@link ProductEventBroadcaster}.
  * </p>
+ * <p>
+ * Lorsque l’écriture différée est activée ({@link ProductViewWriteBehind}), les vues sont
+ * lues et mises à jour dans le cache et persistées par lots ; {@link #flushPendingViews()}
+ * doit alors être appelé avant d’acquitter les événements projetés.
+ * </p>
+ * <p>
+ * Un événement en avance sur la vue (séquence supérieure à la version plus un) n’est pas
+ * appliqué par-dessus le trou : il est retenu dans le {@link ProductEventReorderBuffer} et
+ * le résultat est {@link ProjectionResult#pending en attente}, le consommateur devant le
+ * livrer de nouveau sans le compter comme un échec. Les événements retenus sont appliqués
+ * dès que la séquence manquante est projetée, ou lus dans l’event log une fois le délai
+ * de trou écoulé. L’échec d’une séquence lue dans l’event log n’est imputé qu’à elle : les
+ * événements retenus restent en attente.
+ * </p>
+ * <p>
+ * Une livraison en double (séquence déjà couverte par le watermark de l’agrégat, voir
+ * {@link ProductViewWatermarks}) est reconnue avant toute lecture de la vue et rapportée
+ * comme un no-op, que les consommateurs acquittent.
+ * </p>
  */
 @ApplicationScoped
 public class ProjectionDispatcher {
 
     private static final String PRODUCT_AGGREGATE_TYPE = Product.class.getSimpleName();
 
+    private static final Logger LOG = Logger.getLogger(ProjectionDispatcher.class);
+
     private final Instance<ProductViewProjector> productViewProjector;
     private final ProductViewRepository productViewRepository;
     private final ProductEventBroadcaster productEventBroadcaster;
+    private final ProductViewWriteBehind writeBehind;
+    private final ProductEventReorderBuffer reorderBuffer;
+    private final ProductViewWatermarks watermarks;
 
     /**
      * Constructeur avec injection des dépendances.
@@ -40,15 +67,24 @@ public class ProjectionDispatcher {
      * @param productViewProjector instance des projecteurs de vues produit
      * @param productViewRepository repository des vues produit
      * @param productEventBroadcaster diffuseur d’événements produit
+     * @param writeBehind cache en écriture différée des vues produit
+     * @param reorderBuffer tampon des événements reçus hors ordre
+     * @param watermarks versions appliquées par agrégat
      */
     @Inject
     public ProjectionDispatcher(
             Instance<ProductViewProjector> productViewProjector,
             ProductViewRepository productViewRepository,
-            ProductEventBroadcaster productEventBroadcaster) {
+            ProductEventBroadcaster productEventBroadcaster,
+            ProductViewWriteBehind writeBehind,
+            ProductEventReorderBuffer reorderBuffer,
+            ProductViewWatermarks watermarks) {
         this.productViewProjector = productViewProjector;
         this.productViewRepository = productViewRepository;
         this.productEventBroadcaster = productEventBroadcaster;
+        this.writeBehind = writeBehind;
+        this.reorderBuffer = reorderBuffer;
+        this.watermarks = watermarks;
     }
 
     /**
@@ -56,6 +92,8 @@ public class ProjectionDispatcher {
      * <p>
      * Si le type d’agrégat correspond à un produit, la projection est
      * mise à jour, persistée et l’événement est diffusé via le broadcaster.
+     * Les événements retenus qui suivent l’événement projeté sont appliqués dans la
+     * même transaction.
      * </p>
      *
      * @param event événement produit enveloppé
@@ -65,26 +103,259 @@ public class ProjectionDispatcher {
     @Transactional
     public ProjectionResult<ProductView> dispatch(ProductEventV1Envelope<?> event) throws IllegalStateException {
         if (event.aggregateType().equals(PRODUCT_AGGREGATE_TYPE)) {
-            final Optional<ProductView> currentView = productViewRepository
-                    .findById(new ProductId(event.aggregateId()));
+            if (watermarks.isApplied(event.aggregateId(), event.sequence())) {
+                return ProjectionResult.noOp("Sequence " + event.sequence() + " already applied");
+            }
+            final Optional<ProductView> currentView = loadView(new ProductId(event.aggregateId()));
+            final long expectedSequence = nextSequence(currentView);
+            if (event.sequence() > expectedSequence) {
+                return holdAhead(currentView, List.of(event));
+            }
+            if (event.sequence() < expectedSequence) {
+                return ProjectionResult.noOp("Sequence " + event.sequence() + " already applied");
+            }
             final ProjectionResult<ProductView> result = productViewProjector.get().project(currentView, event);
             if (result.isFailure()) {
-                // TODO: Hey ! Log the failure. It is not a normal case
+                LOG.warnf("Projection failed for %s aggregateId=%s sequence=%d: %s", event.aggregateType(),
+                        event.aggregateId(), event.sequence(), result.getError());
                 return result;
             }
             if (result.isNoOp()) {
-                // TODO: Log info. It may happen if ordering is temporarily broken
+                LOG.infof("Projection no-op for %s aggregateId=%s sequence=%d: %s", event.aggregateType(),
+                        event.aggregateId(), event.sequence(), result.getNoopReason());
             }
             if (result.isSuccess()) {
-                productViewRepository.save(result.getProjection());
                 productEventBroadcaster.broadcast(new ProductStreamElementDto(
                     event.event().eventType(),
                     event.aggregateId().toString(),
                     event.timestamp()
                 ));
+                saveView(releaseHeld(result.getProjection()));
             }
             return result;
         }
         throw new IllegalStateException("Unmatched aggregate type: " + event.aggregateType());
     }
+
+    /**
+     * Applique en une seule transaction une suite d’événements d’un même produit.
+     * <p>
+     * La vue est chargée une fois, les événements sont repliés via
+     * {@link ProductViewProjector#projectAll} à partir de la version courante de la vue,
+     * puis la vue résultante est persistée une seule fois. Chaque événement appliqué
+     * est ensuite diffusé via le broadcaster.
+     * </p>
+     * <p>
+     * Si les événements ne suivent pas la version de la vue sans trou, rien n’est appliqué
+     * et le résultat est en attente : le consommateur les reprend alors un par un via
+     * {@link #dispatch}, qui retient ceux en avance.
+     * </p>
+     *
+     * @param events événements du même agrégat, triés par séquence croissante
+     * @return résultat de la projection repliée {@link ProjectionResult}
+     * @throws IllegalStateException si le type d’agrégat ne correspond pas à un produit
+     *                               ou si les événements concernent plusieurs agrégats
+     */
+    @Transactional
+    public ProjectionResult<ProductView> dispatchAll(List<ProductEventV1Envelope<?>> events)
+            throws IllegalStateException {
+        if (events.isEmpty()) {
+            return ProjectionResult.noOp("No event to dispatch");
+        }
+        final ProductEventV1Envelope<?> first = events.get(0);
+        if (!first.aggregateType().equals(PRODUCT_AGGREGATE_TYPE)) {
+            throw new IllegalStateException("Unmatched aggregate type: " + first.aggregateType());
+        }
+        if (events.stream().anyMatch(e -> !e.aggregateId().equals(first.aggregateId()))) {
+            throw new IllegalStateException("Events span several aggregates");
+        }
+        if (watermarks.isApplied(first.aggregateId(), events.get(events.size() - 1).sequence())) {
+            return ProjectionResult.noOp("Events up to sequence " + events.get(events.size() - 1).sequence()
+                    + " already applied");
+        }
+        final Optional<ProductView> currentView = loadView(new ProductId(first.aggregateId()));
+        final long initialVersion = currentView.map(ProductView::getVersion).orElse(0L);
+        if (!followsWithoutGap(events, initialVersion)) {
+            return ProjectionResult.pending("Events do not follow version " + initialVersion + " without gap");
+        }
+        final ProjectionResult<ProductView> result = productViewProjector.get()
+                .projectAll(currentView, events, initialVersion);
+        if (result.isSuccess()) {
+            broadcastApplied(events, initialVersion, result.getProjection().getVersion());
+            saveView(releaseHeld(result.getProjection()));
+        }
+        return result;
+    }
+
+    /**
+     * Persiste les vues projetées en mémoire par l’écriture différée. Sans effet lorsque
+     * celle-ci est désactivée.
+     *
+     * @throws RuntimeException si les vues n’ont pas pu être persistées
+     * @see ProductViewWriteBehind#flush()
+     */
+    public void flushPendingViews() {
+        if (writeBehind.isEnabled()) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * Évince du cache d’écriture différée les vues déjà persistées, qui seront relues en base.
+     *
+     * @see ProductViewWriteBehind#evictClean()
+     */
+    public void evictCleanViews() {
+        if (writeBehind.isEnabled()) {
+            writeBehind.evictClean();
+        }
+    }
+
+    /**
+     * Retient des événements en avance sur la vue. Une fois le délai de trou écoulé, les
+     * séquences manquantes sont lues dans l’event log et appliquées avec les événements
+     * retenus.
+     * <p>
+     * Une séquence manquante dont la projection échoue (déjà en échec lors de sa propre
+     * livraison) n’est pas imputée aux événements retenus : la vue est conservée à la
+     * dernière version appliquée, les événements retenus restent en attente et la
+     * prochaine lecture de l’event log est différée (voir
+     * {@link ProductEventReorderBuffer#deferGapFill}).
+     * </p>
+     *
+     * @param currentView vue courante
+     * @param events événements d’un même agrégat, en avance sur la vue
+     * @return la projection si tous les événements ont pu être appliqués, le résultat en
+     *         attente sinon
+     */
+    private ProjectionResult<ProductView> holdAhead(Optional<ProductView> currentView,
+            List<ProductEventV1Envelope<?>> events) {
+        final UUID aggregateId = events.get(0).aggregateId();
+        final long expectedSequence = nextSequence(currentView);
+        final long lastSequence = events.get(events.size() - 1).sequence();
+        if (!reorderBuffer.hold(events)) {
+            LOG.debugf("Holding %s aggregateId=%s sequence=%d until sequence %d is projected", PRODUCT_AGGREGATE_TYPE,
+                    aggregateId, events.get(0).sequence(), expectedSequence);
+            return ProjectionResult.pending("Waiting for sequence " + expectedSequence);
+        }
+        final List<ProductEventV1Envelope<?>> missing = reorderBuffer.readMissing(aggregateId, expectedSequence);
+        final long initialVersion = expectedSequence - 1;
+        Optional<ProductView> view = currentView;
+        long lastApplied = initialVersion;
+        ProjectionResult<ProductView> failure = null;
+        for (ProductEventV1Envelope<?> event : missing) {
+            if (event.sequence() <= lastApplied) {
+                continue;
+            }
+            final ProjectionResult<ProductView> result = productViewProjector.get().project(view, event);
+            if (result.isFailure()) {
+                failure = result;
+                break;
+            }
+            if (result.isSuccess()) {
+                view = Optional.of(result.getProjection());
+            }
+            lastApplied = event.sequence();
+        }
+        final long reached = view.map(ProductView::getVersion).orElse(0L);
+        if (reached > initialVersion) {
+            broadcastApplied(missing, initialVersion, reached);
+            reorderBuffer.recordReleased((int) missing.stream()
+                    .filter(e -> e.sequence() > initialVersion && e.sequence() <= reached)
+                    .count());
+        }
+        if (failure != null) {
+            LOG.warnf("Projection of missing events failed for %s aggregateId=%s at sequence %d, keeping version %d"
+                    + " and holding later events: %s", PRODUCT_AGGREGATE_TYPE, aggregateId, reached + 1, reached,
+                    failure.getError());
+            reorderBuffer.deferGapFill(aggregateId);
+            if (reached > initialVersion) {
+                saveView(view.get());
+            }
+            return ProjectionResult.pending("Sequence " + (reached + 1) + " fails to project: " + failure.getError());
+        }
+        if (reached <= initialVersion) {
+            return ProjectionResult.pending("Sequence " + expectedSequence + " not found in event log");
+        }
+        LOG.infof("Filled gap of %s aggregateId=%s from event log, sequences %d to %d", PRODUCT_AGGREGATE_TYPE,
+                aggregateId, expectedSequence, reached);
+        final ProductView released = releaseHeld(view.get());
+        saveView(released);
+        return lastSequence <= released.getVersion() ? ProjectionResult.projected(released)
+                : ProjectionResult.pending("Waiting for sequence " + (released.getVersion() + 1));
+    }
+
+    /**
+     * Applique à une vue les événements retenus qui la suivent sans trou.
+     *
+     * @param view vue qui vient d’être projetée
+     * @return la vue après application des événements libérés
+     */
+    private ProductView releaseHeld(ProductView view) {
+        final List<ProductEventV1Envelope<?>> ready = reorderBuffer.release(view.getId().value(), view.getVersion());
+        if (ready.isEmpty()) {
+            return view;
+        }
+        final ProjectionResult<ProductView> result = productViewProjector.get()
+                .projectAll(Optional.of(view), ready, view.getVersion());
+        if (!result.isSuccess()) {
+            // Les événements retenus seront de nouveau livrés et traités un par un
+            LOG.warnf("Projection of held events failed for %s aggregateId=%s after version %d: %s",
+                    PRODUCT_AGGREGATE_TYPE, view.getId().value(), view.getVersion(),
+                    result.isFailure() ? result.getError()
+                            : result.isPending() ? result.getPendingReason() : result.getNoopReason());
+            return view;
+        }
+        broadcastApplied(ready, view.getVersion(), result.getProjection().getVersion());
+        reorderBuffer.recordReleased(ready.size());
+        return result.getProjection();
+    }
+
+    private void broadcastApplied(List<ProductEventV1Envelope<?>> events, long fromVersion, long toVersion) {
+        events.stream()
+                .filter(e -> e.sequence() > fromVersion && e.sequence() <= toVersion)
+                .forEach(e -> productEventBroadcaster.broadcast(new ProductStreamElementDto(
+                        e.event().eventType(),
+                        e.aggregateId().toString(),
+                        e.timestamp())));
+    }
+
+    /**
+     * @return la séquence attendue pour le prochain événement de la vue
+     */
+    private static long nextSequence(Optional<ProductView> view) {
+        return view.map(ProductView::getVersion).orElse(0L) + 1;
+    }
+
+    /**
+     * @return {@code true} si les événements non encore appliqués suivent {@code version}
+     *         sans trou
+     */
+    private static boolean followsWithoutGap(List<ProductEventV1Envelope<?>> events, long version) {
+        long last = version;
+        for (ProductEventV1Envelope<?> event : events) {
+            if (event.sequence() > last + 1) {
+                return false;
+            }
+            last = Math.max(last, event.sequence());
+        }
+        return true;
+    }
+
+    private Optional<ProductView> loadView(ProductId productId) {
+        final Optional<ProductView> view = writeBehind.isEnabled()
+                ? writeBehind.load(productId, () -> productViewRepository.findById(productId))
+                : productViewRepository.findById(productId);
+        view.ifPresent(v -> watermarks.seed(productId.value(), v.getVersion()));
+        return view;
+    }
+
+    private void saveView(ProductView view) {
+        if (writeBehind.isEnabled()) {
+            writeBehind.put(view);
+        } else {
+            productViewRepository.save(view);
+        }
+        watermarks.advanceOnCommit(view.getId().value(), view.getVersion());
+    }
 }
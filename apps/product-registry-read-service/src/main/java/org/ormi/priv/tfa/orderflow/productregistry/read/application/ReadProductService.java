@@ -41,13 +41,17 @@ public class ReadProductService {
     }
 
     /**
-     * Recherche un produit par son identifiant.
+     * Recherche un produit par son identifiant, avec son historique d’événements.
      *
      * @param productId identifiant du produit
      * @return Optional contenant le produit si trouvé, sinon vide
      */
     public Optional<ProductView> findById(ProductId productId) {
-        return repository.findById(productId);
+        return repository.findById(productId)
+                .map(view -> ProductView.Builder()
+                        .with(view)
+                        .events(repository.findHistory(productId))
+                        .build());
     }
 
     /**
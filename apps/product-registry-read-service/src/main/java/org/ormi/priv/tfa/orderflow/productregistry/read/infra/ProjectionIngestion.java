@@ -0,0 +1,17 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra;
+
+/**
+ * Source des événements alimentant les projections du service de lecture,
+ * sélectionnée par {@code orderflow.projection.ingestion}.
+ */
+public enum ProjectionIngestion {
+    /** Polling de {@code eventing.outbox}, réveillé par LISTEN/NOTIFY (par défaut) */
+    OUTBOX,
+    /** Réplication logique des insertions dans {@code eventing.event_log} (pgoutput) */
+    CDC,
+    /** Lecture de {@code eventing.event_log} depuis un point de reprise, sans outbox */
+    CHECKPOINT;
+
+    /** Clé de configuration */
+    public static final String CONFIG_KEY = "orderflow.projection.ingestion";
+}
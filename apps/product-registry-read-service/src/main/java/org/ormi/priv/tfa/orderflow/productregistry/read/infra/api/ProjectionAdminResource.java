@@ -0,0 +1,59 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.api;
+
+import org.jboss.resteasy.reactive.RestResponse;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.ProductViewRebuilder;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild.ProductViewRebuilder.Progress;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Ressource REST d’administration des projections.
+ * <p>
+ * Permet de reconstruire la vue produit depuis l’event log et d’en suivre l’avancement.
+ * </p>
+ */
+@Path("/admin/projections/product-view/rebuild")
+@Produces(MediaType.APPLICATION_JSON)
+public class ProjectionAdminResource {
+
+    private final ProductViewRebuilder rebuilder;
+
+    /**
+     * Constructeur avec injection des dépendances.
+     *
+     * @param rebuilder moteur de reconstruction de la vue produit
+     */
+    @Inject
+    public ProjectionAdminResource(ProductViewRebuilder rebuilder) {
+        this.rebuilder = rebuilder;
+    }
+
+    /**
+     * Lance une reconstruction de la vue produit en arrière-plan.
+     *
+     * @return 202 avec l’état initial, ou 409 si une reconstruction est déjà en cours
+     */
+    @POST
+    public RestResponse<Progress> rebuild() {
+        return rebuilder.start()
+                .map(progress -> RestResponse.status(RestResponse.Status.ACCEPTED, progress))
+                .orElseGet(() -> RestResponse.status(RestResponse.Status.CONFLICT));
+    }
+
+    /**
+     * Retourne l’avancement de la reconstruction en cours ou de la dernière terminée.
+     *
+     * @return 200 avec l’état, ou 404 si aucune reconstruction n’a été lancée
+     */
+    @GET
+    public RestResponse<Progress> progress() {
+        return rebuilder.progress()
+                .map(RestResponse::ok)
+                .orElseGet(RestResponse::notFound);
+    }
+}
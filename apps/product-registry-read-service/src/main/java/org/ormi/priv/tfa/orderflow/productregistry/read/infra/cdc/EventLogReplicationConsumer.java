@@ -0,0 +1,385 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.cdc;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodecs;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxDispatcher;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxEventHandler;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.ProjectionIngestion;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox.OutboxMetrics;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Ingestion des événements par réplication logique de {@code eventing.event_log}.
+ * <p>
+ * Activée par {@code orderflow.projection.ingestion=cdc}, en remplacement du polling de
+ * l’outbox. Un thread dédié consomme le slot {@code orderflow.projection.cdc.slot}
+ * (plugin {@code pgoutput}, publication {@code PUBLICATION}) : chaque événement inséré
+ * dans l’event log est transmis, dans l’ordre des commits, à l’{@link OutboxEventHandler}
+ * enregistré pour son type d’agrégat et sa version, soit le même chemin de projection que
+ * le poller. La propagation ne dépend plus d’aucun intervalle de polling.
+ * </p>
+ * <p>
+ * Reprise : après chaque transaction projetée, sa position de fin est enregistrée dans
+ * {@code eventing.replication_checkpoint} puis confirmée au serveur, qui peut alors
+ * recycler le WAL. Au redémarrage, le flux reprend depuis la position enregistrée ; une
+ * transaction rejouée après un arrêt brutal est absorbée par l’idempotence des
+ * projections (versions déjà appliquées ignorées).
+ * </p>
+ * <p>
+ * Un événement en échec ou en attente est retenté jusqu’à {@code MAX_ATTEMPTS} fois avec
+ * un délai croissant, le flux restant bloqué pour préserver l’ordre, puis enregistré dans
+ * {@code eventing.outbox_dead_letter} (consommateur : le nom du slot) avant que la position
+ * ne le dépasse. Les événements suivants du même agrégat, qui ne peuvent plus s’appliquer
+ * sans lui, y sont enregistrés dès leur mise en attente plutôt qu’après de nouvelles
+ * tentatives. Si l’enregistrement échoue, le flux est interrompu sans confirmer la position.
+ * </p>
+ * <p>
+ * Prérequis : le changelog optionnel {@code platform/cdc-changelog.xml} (publication et
+ * droit {@code REPLICATION}). Le slot est créé au premier démarrage ; il retient le WAL tant
+ * qu’il n’est pas consommé et doit être supprimé ({@code pg_drop_replication_slot}) si le
+ * mode CDC est abandonné.
+ * </p>
+ */
+@ApplicationScoped
+public class EventLogReplicationConsumer {
+
+    private static final String PUBLICATION = "orderflow_event_log";
+
+    private static final String EVENT_LOG_RELATION = "eventing.event_log";
+    private static final int MAX_ATTEMPTS = 6;
+    private static final Duration RETRY_BASE_DELAY = Duration.ofMillis(200);
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+    private static final int STATUS_INTERVAL_MS = 10_000;
+
+    private static final String SQL_SLOT_EXISTS = "SELECT 1 FROM pg_replication_slots WHERE slot_name = ?";
+    private static final String SQL_LOAD_CHECKPOINT = "SELECT confirmed_lsn::text FROM eventing.replication_checkpoint"
+            + " WHERE slot_name = ?";
+    private static final String SQL_SAVE_CHECKPOINT = "INSERT INTO eventing.replication_checkpoint"
+            + " (slot_name, confirmed_lsn, updated_at) VALUES (?, CAST(? AS pg_lsn), CURRENT_TIMESTAMP)"
+            + " ON CONFLICT (slot_name) DO UPDATE"
+            + " SET confirmed_lsn = EXCLUDED.confirmed_lsn, updated_at = EXCLUDED.updated_at";
+
+    /** Format texte de {@code timestamptz} : {@code 2026-01-31 12:34:56.789+00} */
+    private static final DateTimeFormatter PG_TIMESTAMPTZ = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .optionalStart()
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+            .optionalEnd()
+            .appendOffset("+HH:mm", "+00")
+            .toFormatter();
+
+    private static final Logger LOG = Logger.getLogger(EventLogReplicationConsumer.class);
+
+    private final DataSource dataSource;
+    private final OutboxDispatcher dispatcher;
+    private final OutboxRepository outbox;
+    private final OutboxMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final ProjectionIngestion ingestion;
+    private final String slotName;
+    private final String jdbcUrl;
+    private final String username;
+    private final Optional<String> password;
+
+    private volatile boolean running;
+    private volatile Connection replicationConnection;
+    private Thread worker;
+    /** Agrégats dont un événement a été mis en dead letter, accédés par le seul thread du flux */
+    private final Set<UUID> deadLetteredAggregates = new HashSet<>();
+
+    @Inject
+    public EventLogReplicationConsumer(
+            DataSource dataSource,
+            OutboxDispatcher dispatcher,
+            OutboxRepository outbox,
+            OutboxMetrics metrics,
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = ProjectionIngestion.CONFIG_KEY, defaultValue = "outbox") ProjectionIngestion ingestion,
+            @ConfigProperty(name = "orderflow.projection.cdc.slot", defaultValue = "orderflow_read_product_registry") String slotName,
+            @ConfigProperty(name = "quarkus.datasource.jdbc.url") String jdbcUrl,
+            @ConfigProperty(name = "quarkus.datasource.username") String username,
+            @ConfigProperty(name = "quarkus.datasource.password") Optional<String> password) {
+        this.dataSource = dataSource;
+        this.dispatcher = dispatcher;
+        this.outbox = outbox;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+        this.ingestion = ingestion;
+        this.slotName = slotName;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (ingestion != ProjectionIngestion.CDC) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("event-log-replication")
+                .daemon()
+                .start(this::consume);
+        LOG.info("EventLogReplicationConsumer streaming slot " + slotName);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        running = false;
+        closeQuietly(replicationConnection);
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            try (Connection connection = openReplicationConnection()) {
+                replicationConnection = connection;
+                stream(connection);
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.warnf("Event log replication interrupted, retrying in %s: %s", RECONNECT_DELAY, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void stream(Connection connection) throws SQLException, InterruptedException {
+        final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        ensureSlot(connection, pgConnection);
+        final LogSequenceNumber start = loadCheckpoint();
+        final PgOutputDecoder decoder = new PgOutputDecoder();
+        final List<EventLogRecord> transaction = new ArrayList<>();
+        try (PGReplicationStream stream = pgConnection.getReplicationAPI()
+                .replicationStream()
+                .logical()
+                .withSlotName(slotName)
+                .withStartPosition(start)
+                .withSlotOption("proto_version", "1")
+                .withSlotOption("publication_names", PUBLICATION)
+                .withStatusInterval(STATUS_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                .start()) {
+            LOG.infof("Event log replication resumed from %s", start);
+            while (running) {
+                final ByteBuffer buffer = stream.read();
+                final PgOutputDecoder.Message message = decoder.decode(buffer);
+                if (message instanceof PgOutputDecoder.Insert insert
+                        && EVENT_LOG_RELATION.equals(insert.relation())) {
+                    transaction.add(toRecord(insert.columns()));
+                } else if (message instanceof PgOutputDecoder.Commit commit) {
+                    for (EventLogRecord event : transaction) {
+                        apply(event);
+                    }
+                    transaction.clear();
+                    final LogSequenceNumber lsn = LogSequenceNumber.valueOf(commit.endLsn());
+                    // Les projections différées doivent être persistées avant de confirmer la position
+                    dispatcher.flushHandlers();
+                    saveCheckpoint(lsn);
+                    stream.setAppliedLSN(lsn);
+                    stream.setFlushedLSN(lsn);
+                }
+            }
+        }
+    }
+
+    /**
+     * Projette un événement, en le retentant tant que la projection échoue, puis le met
+     * en dead letter une fois ses tentatives épuisées.
+     */
+    private void apply(EventLogRecord event) throws InterruptedException {
+        final Optional<OutboxEventHandler> handler = dispatcher.handlerFor(event.aggregateType(),
+                event.eventVersion());
+        if (handler.isEmpty()) {
+            LOG.debugf("No handler for %s v%d, skipping event id=%d", event.aggregateType(),
+                    event.eventVersion(), event.id());
+            return;
+        }
+        for (int attempt = 1;; attempt++) {
+            final long startNanos = System.nanoTime();
+            ProjectionResult<?> result = null;
+            String error;
+            try {
+                result = handler.get().handle(event);
+                if (result.isPending()) {
+                    // Retenu hors ordre : la position ne doit pas le dépasser
+                    error = result.getPendingReason();
+                } else if (!result.isFailure()) {
+                    // Un no-op signale un événement déjà appliqué (rejeu après reprise)
+                    deadLetteredAggregates.remove(event.aggregateId());
+                    return;
+                } else {
+                    error = result.getError();
+                }
+            } catch (Exception e) {
+                error = e.getMessage();
+            } finally {
+                metrics.recordProjection(event.eventType(), false, result, System.nanoTime() - startNanos);
+            }
+            // Séquence manquante en dead letter : aucune nouvelle tentative ne peut aboutir
+            final boolean blocked = result != null && result.isPending()
+                    && deadLetteredAggregates.contains(event.aggregateId());
+            if (blocked || attempt >= MAX_ATTEMPTS) {
+                deadLetter(event, attempt, error);
+                return;
+            }
+            LOG.warnf("Projection of event id=%d failed (attempt %d/%d): %s", event.id(), attempt, MAX_ATTEMPTS,
+                    error);
+            Thread.sleep(RETRY_BASE_DELAY.multipliedBy(1L << (attempt - 1)));
+        }
+    }
+
+    /**
+     * Enregistre un événement abandonné en dead letter. Une erreur d’enregistrement
+     * interrompt le flux avant la confirmation de la position.
+     */
+    private void deadLetter(EventLogRecord event, int attempts, String error) {
+        final String lastError = Objects.requireNonNullElse(error, "Unknown projection error");
+        outbox.deadLetter(event.id(), attempts, lastError, slotName);
+        deadLetteredAggregates.add(event.aggregateId());
+        metrics.deadLettered(1);
+        LOG.errorf("Moved event id=%d (aggregateId=%s) to the dead letter table after %d attempts: %s", event.id(),
+                event.aggregateId(), attempts, lastError);
+    }
+
+    private EventLogRecord toRecord(Map<String, String> columns) {
+        try {
+            return new EventLogRecord(
+                    Long.valueOf(columns.get("id")),
+                    columns.get("aggregate_type"),
+                    UUID.fromString(columns.get("aggregate_id")),
+                    Long.valueOf(columns.get("aggregate_version")),
+                    columns.get("event_type"),
+                    Integer.parseInt(columns.get("event_version")),
+                    decodePayload(columns),
+                    columns.get("occurred_at") == null ? null
+                            : OffsetDateTime.parse(columns.get("occurred_at"), PG_TIMESTAMPTZ).toInstant());
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable event log row " + columns.get("id"), e);
+        }
+    }
+
+    /**
+     * Décode le payload selon son codec ; {@code bytea} est transmis au format hexadécimal
+     * ({@code \x...}).
+     */
+    private JsonNode decodePayload(Map<String, String> columns) throws JsonProcessingException {
+        final short codec = Short.parseShort(columns.get("payload_codec"));
+        if (codec == EventPayloadCodecs.JSON.id()) {
+            return objectMapper.readTree(columns.get("payload"));
+        }
+        return EventPayloadCodecs.byId(codec).decode(HexFormat.of().parseHex(columns.get("payload_bin").substring(2)));
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        final Properties properties = new Properties();
+        PGProperty.USER.set(properties, username);
+        password.ifPresent(value -> PGProperty.PASSWORD.set(properties, value));
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple");
+        return DriverManager.getConnection(jdbcUrl, properties);
+    }
+
+    private void ensureSlot(Connection connection, PGConnection pgConnection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SQL_SLOT_EXISTS)) {
+            statement.setString(1, slotName);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        pgConnection.getReplicationAPI()
+                .createReplicationSlot()
+                .logical()
+                .withSlotName(slotName)
+                .withOutputPlugin("pgoutput")
+                .make();
+        LOG.infof("Created logical replication slot %s", slotName);
+    }
+
+    private LogSequenceNumber loadCheckpoint() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(SQL_LOAD_CHECKPOINT)) {
+            statement.setString(1, slotName);
+            try (ResultSet rs = statement.executeQuery()) {
+                // Sans point de reprise, le serveur repart de la position confirmée du slot
+                return rs.next() ? LogSequenceNumber.valueOf(rs.getString(1)) : LogSequenceNumber.INVALID_LSN;
+            }
+        }
+    }
+
+    private void saveCheckpoint(LogSequenceNumber lsn) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            try (PreparedStatement statement = connection.prepareStatement(SQL_SAVE_CHECKPOINT)) {
+                statement.setString(1, slotName);
+                statement.setString(2, lsn.asString());
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.debug("Failed to close replication connection", e);
+        }
+    }
+}
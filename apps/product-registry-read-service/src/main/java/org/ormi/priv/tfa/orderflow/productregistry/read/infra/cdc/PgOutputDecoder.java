@@ -0,0 +1,128 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Décodeur minimal du protocole logique {@code pgoutput} (version 1).
+ * <p>
+ * Seuls les messages nécessaires à l’ingestion d’une table en insertion seule sont
+ * interprétés : {@code Relation} (mémorisée pour nommer les colonnes), {@code Insert}
+ * (valeurs au format texte) et {@code Commit} (position de fin de transaction). Les
+ * autres messages ({@code Begin}, {@code Origin}, {@code Type}, {@code Update},
+ * {@code Delete}, {@code Truncate}) sont ignorés.
+ * </p>
+ * <p>
+ * Non thread-safe : une instance par flux de réplication.
+ * </p>
+ */
+class PgOutputDecoder {
+
+    /** Message décodé */
+    sealed interface Message permits Insert, Commit {
+    }
+
+    /**
+     * Ligne insérée.
+     *
+     * @param relation nom qualifié de la table ({@code schema.table})
+     * @param columns valeurs au format texte, par nom de colonne ; {@code null} pour une valeur nulle
+     */
+    record Insert(String relation, Map<String, String> columns) implements Message {
+    }
+
+    /**
+     * Fin de transaction.
+     *
+     * @param endLsn position du WAL suivant la transaction
+     */
+    record Commit(long endLsn) implements Message {
+    }
+
+    private record Relation(String name, List<String> columns) {
+    }
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    /**
+     * Décode un message reçu du flux de réplication.
+     *
+     * @param buffer contenu du message
+     * @return le message décodé, ou {@code null} s’il est ignoré
+     */
+    Message decode(ByteBuffer buffer) {
+        final char type = (char) buffer.get();
+        switch (type) {
+            case 'R' -> {
+                readRelation(buffer);
+                return null;
+            }
+            case 'I' -> {
+                return readInsert(buffer);
+            }
+            case 'C' -> {
+                buffer.get(); // flags
+                buffer.getLong(); // LSN du commit
+                return new Commit(buffer.getLong());
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private void readRelation(ByteBuffer buffer) {
+        final int oid = buffer.getInt();
+        final String namespace = readString(buffer);
+        final String table = readString(buffer);
+        buffer.get(); // replica identity
+        final short columnCount = buffer.getShort();
+        final List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            buffer.get(); // flags
+            columns.add(readString(buffer));
+            buffer.getInt(); // type
+            buffer.getInt(); // modificateur de type
+        }
+        relations.put(oid, new Relation(namespace + "." + table, columns));
+    }
+
+    private Insert readInsert(ByteBuffer buffer) {
+        final Relation relation = relations.get(buffer.getInt());
+        if (relation == null) {
+            throw new IllegalStateException("Insert received before its relation");
+        }
+        buffer.get(); // 'N' : nouvelle ligne
+        final short columnCount = buffer.getShort();
+        final Map<String, String> columns = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            final char kind = (char) buffer.get();
+            final String name = relation.columns().get(i);
+            switch (kind) {
+                case 't' -> {
+                    final byte[] value = new byte[buffer.getInt()];
+                    buffer.get(value);
+                    columns.put(name, new String(value, StandardCharsets.UTF_8));
+                }
+                case 'n', 'u' -> columns.put(name, null);
+                default -> throw new IllegalStateException("Unsupported tuple value kind: " + kind);
+            }
+        }
+        return new Insert(relation.name(), columns);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int start = buffer.position();
+        while (buffer.get() != 0) {
+            // Chaîne terminée par un octet nul
+        }
+        final byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,493 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.checkpoint;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.KeyedSequentialExecutor;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxDispatcher;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxEventHandler;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogHorizon;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogPosition;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.PositionedEvent;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.ProjectionCheckpointRepository;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.ProjectionIngestion;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox.OutboxMetrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Ingestion des événements par lecture de {@code eventing.event_log} depuis un point de reprise.
+ * <p>
+ * Activée par {@code orderflow.projection.ingestion=checkpoint}. Aucune ligne d’outbox n’est
+ * créée, réservée ni acquittée par événement : la projection mémorise seulement la position
+ * du dernier événement traité dans {@code eventing.projection_checkpoint} (une ligne par
+ * projection, {@code orderflow.projection.checkpoint.name}) et lit les événements suivants
+ * dans l’ordre global (voir {@link EventLogRepository#readCommittedAfter}). Côté écriture,
+ * l’outbox peut alors être désactivée ({@code orderflow.outbox.enabled=false}).
+ * </p>
+ * <p>
+ * Chaque cycle lit des lots de {@code BATCH_SIZE} événements jusqu’à épuisement. Les
+ * événements d’un lot sont regroupés par agrégat et projetés en parallèle entre agrégats,
+ * séquentiellement au sein d’un agrégat, avec le même chemin de projection que le poller
+ * de l’outbox ({@link OutboxEventHandler} par type d’agrégat et version). Le point de
+ * reprise avance jusqu’à l’événement précédant le premier échec du lot ; les événements
+ * déjà projetés au-delà sont rejoués au cycle suivant et absorbés par l’idempotence des
+ * projections (un no-op vaut événement déjà appliqué).
+ * </p>
+ * <p>
+ * Un événement en échec est retenté avec un délai croissant, le point de reprise restant
+ * bloqué pour préserver l’ordre. Après {@code MAX_ATTEMPTS} tentatives, il est enregistré
+ * dans {@code eventing.outbox_dead_letter} (consommateur : le nom de la projection) avant
+ * que le point de reprise ne le dépasse ; si l’enregistrement échoue, le point de reprise
+ * reste bloqué. Les événements suivants du même agrégat, mis en attente faute de la
+ * séquence abandonnée, y sont enregistrés sans nouvelle tentative.
+ * </p>
+ * <p>
+ * Les cycles sont déclenchés par {@link #wakeUp()} à chaque notification de publication
+ * (voir {@code OutboxNotificationListener}), avec un polling de secours toutes les
+ * {@code SAFETY_NET_POLL_INTERVAL_MS} millisecondes. La lecture ne retourne que des
+ * transactions terminées : un événement encore masqué au réveil par une transaction plus
+ * ancienne restée ouverte est repris par une relecture toutes les
+ * {@code PENDING_POLL_INTERVAL_MS} millisecondes, au plus {@code MAX_PENDING_POLLS} fois
+ * par réveil.
+ * </p>
+ * <p>
+ * Une transaction longue, même sans rapport avec l’event log, fige cet horizon et suspend
+ * la projection sans erreur. L’horizon est donc mesuré toutes les
+ * {@code HORIZON_CHECK_INTERVAL_MS} millisecondes : les jauges
+ * {@code projection.checkpoint.horizon.held} (événements commités mais masqués) et
+ * {@code projection.checkpoint.horizon.stall} (durée depuis laquelle l’horizon n’avance
+ * plus alors que des événements sont masqués) l’exposent, et un avertissement est journalisé
+ * au-delà de {@code orderflow.projection.checkpoint.horizon-stall-warning}. Un cycle de
+ * lecture est relancé dès que l’horizon avance.
+ * </p>
+ */
+@ApplicationScoped
+public class EventLogCheckpointConsumer {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int SAFETY_NET_POLL_INTERVAL_MS = 30_000;
+    private static final int PENDING_POLL_INTERVAL_MS = 100;
+    private static final int MAX_PENDING_POLLS = 20;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final Duration RETRY_BASE_DELAY = Duration.ofMillis(200);
+    private static final int HORIZON_CHECK_INTERVAL_MS = 10_000;
+
+    private static final Logger LOG = Logger.getLogger(EventLogCheckpointConsumer.class);
+
+    private final ScheduledExecutorService pollScheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "event-log-checkpoint"));
+    private final KeyedSequentialExecutor<UUID> executor = new KeyedSequentialExecutor<>("event-log-projection",
+            OutboxDispatcher.MAX_CONCURRENT_AGGREGATES);
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+    private final Set<UUID> deadLetteredAggregates = ConcurrentHashMap.newKeySet();
+    private final Map<Long, String> lastErrors = new ConcurrentHashMap<>();
+
+    private final EventLogRepository eventLog;
+    private final ProjectionCheckpointRepository checkpoints;
+    private final OutboxRepository outbox;
+    private final OutboxDispatcher dispatcher;
+    private final OutboxMetrics metrics;
+    private final ProjectionIngestion ingestion;
+    private final String projectionName;
+    private final Duration horizonStallWarning;
+
+    private volatile EventLogHorizon horizon;
+    private volatile Instant horizonStalledSince;
+    private boolean horizonStallWarned;
+    private EventLogPosition position;
+    private EventLogPosition failedAt;
+    private int failedAttempts;
+    private int pendingPolls;
+    private boolean pendingPollScheduled;
+    private Instant retryNotBefore = Instant.MIN;
+
+    @Inject
+    public EventLogCheckpointConsumer(
+            EventLogRepository eventLog,
+            ProjectionCheckpointRepository checkpoints,
+            OutboxRepository outbox,
+            OutboxDispatcher dispatcher,
+            OutboxMetrics metrics,
+            MeterRegistry registry,
+            @ConfigProperty(name = ProjectionIngestion.CONFIG_KEY, defaultValue = "outbox") ProjectionIngestion ingestion,
+            @ConfigProperty(name = "orderflow.projection.checkpoint.name", defaultValue = "read_product_registry") String projectionName,
+            @ConfigProperty(name = "orderflow.projection.checkpoint.horizon-stall-warning", defaultValue = "60s") Duration horizonStallWarning) {
+        this.eventLog = eventLog;
+        this.checkpoints = checkpoints;
+        this.outbox = outbox;
+        this.dispatcher = dispatcher;
+        this.metrics = metrics;
+        this.ingestion = ingestion;
+        this.projectionName = projectionName;
+        this.horizonStallWarning = horizonStallWarning;
+        if (ingestion == ProjectionIngestion.CHECKPOINT) {
+            Gauge.builder("projection.checkpoint.horizon.held", this,
+                    c -> c.horizon == null ? 0 : c.horizon.heldBackEvents())
+                    .description("Committed event log events hidden by an older open transaction")
+                    .register(registry);
+            TimeGauge.builder("projection.checkpoint.horizon.stall", this, TimeUnit.MILLISECONDS,
+                    c -> c.horizonStalledFor(Instant.now()).toMillis())
+                    .description("Time the event log read horizon has not advanced while events are hidden")
+                    .register(registry);
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (ingestion != ProjectionIngestion.CHECKPOINT) {
+            return;
+        }
+        pollScheduler.scheduleWithFixedDelay(this::poll, 0, SAFETY_NET_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        pollScheduler.scheduleWithFixedDelay(this::checkHorizon, HORIZON_CHECK_INTERVAL_MS,
+                HORIZON_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        LOG.info("EventLogCheckpointConsumer started for projection " + projectionName);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        pollScheduler.shutdownNow();
+        executor.close();
+    }
+
+    /**
+     * Demande un cycle de lecture immédiat.
+     * <p>
+     * Les réveils sont fusionnés : tant qu’un cycle demandé n’a pas démarré,
+     * les appels suivants sont ignorés.
+     * </p>
+     */
+    public void wakeUp() {
+        if (!wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            pollScheduler.execute(() -> {
+                wakeUpPending.set(false);
+                pendingPolls = 0;
+                poll();
+            });
+        } catch (RejectedExecutionException e) {
+            // Scheduler arrêté, le consommateur est en cours d’arrêt
+            wakeUpPending.set(false);
+        }
+    }
+
+    /**
+     * Lit et projette les événements suivant le point de reprise jusqu’à épuisement,
+     * en enregistrant la nouvelle position après chaque lot.
+     */
+    protected void poll() {
+        if (Instant.now().isBefore(retryNotBefore)) {
+            return;
+        }
+        final Timer.Sample sample = metrics.pollStarted();
+        try {
+            if (position == null) {
+                position = checkpoints.load(projectionName);
+            }
+            while (true) {
+                final List<PositionedEvent> events = readAfter(position);
+                if (events.isEmpty()) {
+                    schedulePendingPoll();
+                    return;
+                }
+                pendingPolls = 0;
+                final Optional<PositionedEvent> failed = projectAndAwait(events);
+                final EventLogPosition reached = failed.isEmpty()
+                        ? events.get(events.size() - 1).position()
+                        : positionBefore(events, failed.get());
+                if (!reached.equals(position)) {
+                    // Les projections différées doivent être persistées avant d’avancer le point de reprise
+                    dispatcher.flushHandlers();
+                    checkpoints.save(projectionName, reached);
+                    position = reached;
+                }
+                if (failed.isPresent()) {
+                    onFailure(failed.get());
+                    return;
+                }
+                failedAt = null;
+                failedAttempts = 0;
+                lastErrors.clear();
+                if (events.size() < BATCH_SIZE) {
+                    schedulePendingPoll();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.error("Error occurred while reading the event log", e);
+        } finally {
+            metrics.pollCompleted(sample);
+        }
+    }
+
+    @ActivateRequestContext
+    @Transactional
+    protected List<PositionedEvent> readAfter(EventLogPosition after) {
+        return eventLog.readCommittedAfter(after, BATCH_SIZE);
+    }
+
+    @ActivateRequestContext
+    @Transactional
+    protected EventLogHorizon readHorizon() {
+        return eventLog.committedHorizon();
+    }
+
+    /**
+     * Mesure l’horizon de lecture et signale une transaction ouverte qui le fige au-delà de
+     * {@code horizonStallWarning}. Relance un cycle de lecture dès que l’horizon avance sur
+     * des événements masqués.
+     */
+    private void checkHorizon() {
+        final EventLogHorizon current;
+        try {
+            current = readHorizon();
+        } catch (Exception e) {
+            LOG.warnf("Failed to read the event log horizon: %s", e.getMessage());
+            return;
+        }
+        final EventLogHorizon previous = horizon;
+        horizon = current;
+        final boolean advanced = previous == null || current.snapshotXmin() != previous.snapshotXmin();
+        if (current.heldBackEvents() == 0) {
+            horizonStalledSince = null;
+        } else if (advanced || horizonStalledSince == null) {
+            horizonStalledSince = Instant.now();
+        }
+        if (advanced && previous != null && previous.heldBackEvents() > 0) {
+            wakeUp();
+        }
+        final Duration stalled = horizonStalledFor(Instant.now());
+        if (stalled.compareTo(horizonStallWarning) >= 0) {
+            if (!horizonStallWarned) {
+                horizonStallWarned = true;
+                LOG.warnf("Event log horizon of projection %s stuck at transaction %d for %ds: %d committed events"
+                        + " are hidden by an older open transaction", projectionName, current.snapshotXmin(),
+                        stalled.toSeconds(), current.heldBackEvents());
+            }
+        } else if (horizonStallWarned) {
+            horizonStallWarned = false;
+            LOG.infof("Event log horizon of projection %s advanced to transaction %d", projectionName,
+                    current.snapshotXmin());
+        }
+    }
+
+    /**
+     * @return la durée depuis laquelle l’horizon n’avance plus alors que des événements sont
+     *         masqués, {@link Duration#ZERO} sinon
+     */
+    private Duration horizonStalledFor(Instant now) {
+        final Instant since = horizonStalledSince;
+        return since == null ? Duration.ZERO : Duration.between(since, now);
+    }
+
+    /**
+     * Planifie une relecture prochaine, des transactions encore ouvertes pouvant masquer
+     * des événements déjà notifiés.
+     */
+    private void schedulePendingPoll() {
+        if (pendingPollScheduled || pendingPolls >= MAX_PENDING_POLLS) {
+            return;
+        }
+        pendingPolls++;
+        pendingPollScheduled = true;
+        try {
+            pollScheduler.schedule(() -> {
+                pendingPollScheduled = false;
+                poll();
+            }, PENDING_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Scheduler arrêté
+        }
+    }
+
+    /**
+     * Enregistre l’échec d’un événement et planifie la prochaine tentative ; au-delà de
+     * {@code MAX_ATTEMPTS} tentatives, l’événement est mis en dead letter et le point de
+     * reprise le dépasse.
+     */
+    private void onFailure(PositionedEvent failed) {
+        failedAttempts = failed.position().equals(failedAt) ? failedAttempts + 1 : 1;
+        failedAt = failed.position();
+        if (failedAttempts >= MAX_ATTEMPTS) {
+            // Une erreur d’enregistrement remonte au cycle : le point de reprise reste bloqué
+            deadLetter(failed.event(), failedAttempts, lastErrors.remove(failed.event().id()));
+            dispatcher.flushHandlers();
+            checkpoints.save(projectionName, failed.position());
+            position = failed.position();
+            lastErrors.clear();
+            failedAt = null;
+            failedAttempts = 0;
+            wakeUp();
+            return;
+        }
+        final Duration delay = RETRY_BASE_DELAY.multipliedBy(1L << (failedAttempts - 1));
+        retryNotBefore = Instant.now().plus(delay);
+        pollScheduler.schedule(this::wakeUp, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Regroupe les événements par agrégat, projette chaque groupe et attend la fin de
+     * leur traitement.
+     *
+     * @param events événements à projeter, triés par position
+     * @return le premier événement en échec, dans l’ordre global, s’il y en a un
+     */
+    private Optional<PositionedEvent> projectAndAwait(List<PositionedEvent> events)
+            throws InterruptedException, ExecutionException {
+        final Map<UUID, List<PositionedEvent>> byAggregate = events.stream()
+                .collect(Collectors.groupingBy(
+                        ev -> ev.event().aggregateId(),
+                        LinkedHashMap::new,
+                        Collectors.toList()));
+        final List<CompletableFuture<Optional<PositionedEvent>>> pending = new ArrayList<>(byAggregate.size());
+        for (Map.Entry<UUID, List<PositionedEvent>> group : byAggregate.entrySet()) {
+            pending.add(executor.submit(group.getKey(), () -> projectAggregate(group.getValue())));
+        }
+        Optional<PositionedEvent> earliest = Optional.empty();
+        for (CompletableFuture<Optional<PositionedEvent>> future : pending) {
+            final Optional<PositionedEvent> failed = future.get();
+            if (failed.isPresent() && (earliest.isEmpty()
+                    || events.indexOf(failed.get()) < events.indexOf(earliest.get()))) {
+                earliest = failed;
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Projette les événements d’un même agrégat, groupés via
+     * {@link OutboxEventHandler#handleAll} lorsqu’ils relèvent du même handler, sinon un
+     * par un en s’arrêtant au premier échec.
+     *
+     * @param events événements d’un même agrégat, triés par position
+     * @return l’événement en échec, s’il y en a un
+     */
+    private Optional<PositionedEvent> projectAggregate(List<PositionedEvent> events) {
+        final EventLogRecord first = events.get(0).event();
+        final boolean singleVersion = events.stream()
+                .allMatch(ev -> ev.event().eventVersion() == first.eventVersion());
+        final Optional<OutboxEventHandler> handler = dispatcher.handlerFor(first.aggregateType(),
+                first.eventVersion());
+        if (events.size() > 1 && singleVersion && handler.isPresent()) {
+            final long start = System.nanoTime();
+            ProjectionResult<?> result = null;
+            try {
+                result = handler.get().handleAll(events.stream()
+                        .map(PositionedEvent::event)
+                        .toList());
+                if (result.isSuccess()) {
+                    return Optional.empty();
+                }
+            } catch (Exception e) {
+                LOG.warnf("Batched projection failed for aggregateId=%s, falling back to per-event projection: %s",
+                        first.aggregateId(), e.getMessage());
+            } finally {
+                metrics.recordProjection(first.eventType(), true, result, System.nanoTime() - start);
+            }
+        }
+        for (PositionedEvent event : events) {
+            if (!project(event.event())) {
+                return Optional.of(event);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean project(EventLogRecord ev) {
+        final Optional<OutboxEventHandler> handler = dispatcher.handlerFor(ev.aggregateType(), ev.eventVersion());
+        if (handler.isEmpty()) {
+            LOG.debugf("No handler for %s v%d, skipping event id=%d", ev.aggregateType(), ev.eventVersion(),
+                    ev.id());
+            return true;
+        }
+        final long start = System.nanoTime();
+        ProjectionResult<?> result = null;
+        try {
+            result = handler.get().handle(ev);
+            if (result.isFailure()) {
+                LOG.warnf("Projection of event id=%d failed: %s", ev.id(), result.getError());
+                lastErrors.put(ev.id(), result.getError());
+                return false;
+            }
+            if (result.isPending()) {
+                if (deadLetteredAggregates.contains(ev.aggregateId())) {
+                    // La séquence manquante est en dead letter : aucune nouvelle tentative ne peut aboutir
+                    deadLetter(ev, 1, result.getPendingReason());
+                    return true;
+                }
+                // Retenu hors ordre : le point de reprise ne doit pas le dépasser
+                LOG.debugf("Projection of event id=%d pending: %s", ev.id(), result.getPendingReason());
+                lastErrors.put(ev.id(), result.getPendingReason());
+                return false;
+            }
+            // Un no-op signale un événement déjà appliqué (rejeu après reprise)
+            deadLetteredAggregates.remove(ev.aggregateId());
+            return true;
+        } catch (Exception e) {
+            LOG.error(String.format("Projection of event id=%d (aggregateId=%s) failed: %s", ev.id(),
+                    ev.aggregateId(), e.getMessage()), e);
+            if (e.getMessage() != null) {
+                lastErrors.put(ev.id(), e.getMessage());
+            }
+            return false;
+        } finally {
+            metrics.recordProjection(ev.eventType(), false, result, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Enregistre un événement abandonné en dead letter.
+     */
+    private void deadLetter(EventLogRecord ev, int attempts, String error) {
+        final String lastError = Objects.requireNonNullElse(error, "Unknown projection error");
+        outbox.deadLetter(ev.id(), attempts, lastError, projectionName);
+        deadLetteredAggregates.add(ev.aggregateId());
+        metrics.deadLettered(1);
+        LOG.errorf("Moved event id=%d (aggregateId=%s) to the dead letter table after %d attempts: %s", ev.id(),
+                ev.aggregateId(), attempts, lastError);
+    }
+
+    /**
+     * @return la position de l’événement précédant {@code failed} dans le lot, ou la
+     *         position courante s’il est le premier
+     */
+    private EventLogPosition positionBefore(List<PositionedEvent> events, PositionedEvent failed) {
+        final int index = events.indexOf(failed);
+        return index == 0 ? position : events.get(index - 1).position();
+    }
+}
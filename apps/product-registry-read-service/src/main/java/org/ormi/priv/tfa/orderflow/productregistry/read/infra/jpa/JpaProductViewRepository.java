@@ -1,5 +1,8 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -7,16 +10,35 @@ import java.util.UUID;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
 import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
 import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductEventType;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.Tuple;
 
+/**
+ * Implémentation JPA du dépôt des vues produit.
+ * <p>
+ * L’état courant est stocké dans {@code read_product_registry.product_view} ; l’historique,
+ * en insertion seule, dans {@code read_product_registry.product_view_event}. Sauvegarder une
+ * vue n’ajoute que les événements qu’elle porte, sans relire ni réécrire l’historique.
+ * </p>
+ */
 @ApplicationScoped
 public class JpaProductViewRepository implements PanacheRepositoryBase<ProductViewEntity, UUID>, ProductViewRepository {
 
+    private static final String SQL_APPEND_EVENT = "INSERT INTO read_product_registry.product_view_event"
+            + " (product_id, sequence, type, occurred_at, payload)"
+            + " VALUES (:productId, :sequence, :type, :occurredAt, CAST(:payload AS jsonb))"
+            + " ON CONFLICT (product_id, sequence) DO NOTHING";
+    private static final String SQL_FIND_HISTORY = "SELECT sequence, type, occurred_at, payload::text AS payload"
+            + " FROM read_product_registry.product_view_event"
+            + " WHERE product_id = :productId ORDER BY sequence";
+
     private final ProductViewJpaMapper mapper;
     private final ObjectMapper objectMapper;
 
@@ -34,6 +56,15 @@ public class JpaProductViewRepository implements PanacheRepositoryBase<ProductVi
                     ProductViewEntity newEntity = mapper.toEntity(productView, objectMapper);
                     getEntityManager().merge(newEntity);
                 });
+        for (ProductViewEvent event : productView.getEvents()) {
+            getEntityManager().createNativeQuery(SQL_APPEND_EVENT)
+                    .setParameter("productId", productView.getId().value())
+                    .setParameter("sequence", event.getSequence())
+                    .setParameter("type", event.getType().name())
+                    .setParameter("occurredAt", event.getTimestamp())
+                    .setParameter("payload", mapper.productViewEventPayloadToJson(event, objectMapper))
+                    .executeUpdate();
+        }
     }
 
     @Override
@@ -42,6 +73,22 @@ public class JpaProductViewRepository implements PanacheRepositoryBase<ProductVi
                 .map(e -> mapper.toDomain(e, objectMapper));
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ProductViewEvent> findHistory(ProductId id) {
+        return ((List<Tuple>) getEntityManager().createNativeQuery(SQL_FIND_HISTORY, Tuple.class)
+                .setParameter("productId", id.value())
+                .getResultList())
+                .stream()
+                .map(row -> mapper.toProductViewEvent(
+                        ProductEventType.valueOf(row.get("type", String.class)),
+                        toInstant(row.get("occurred_at")),
+                        ((Number) row.get("sequence")).longValue(),
+                        row.get("payload", String.class),
+                        objectMapper))
+                .toList();
+    }
+
     @Override
     public Optional<ProductView> findBySkuId(SkuId skuId) {
         return find("skuId", skuId.value())
@@ -64,4 +111,16 @@ public class JpaProductViewRepository implements PanacheRepositoryBase<ProductVi
         return count("skuId LIKE ?1", "%" + skuIdPattern + "%");
     }
 
+    private static Instant toInstant(Object value) {
+        if (value instanceof Instant instant) {
+            return instant;
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        throw new IllegalStateException("Unsupported temporal type: " + value.getClass());
+    }
 }
@@ -24,12 +24,13 @@ import lombok.Setter;
 /**
  * Entité JPA représentant la vue en lecture d’un produit.
  * <p>
- * Stocke les informations du produit ainsi que les événements applicables
- * pour permettre des projections et des lectures rapides.
+ * Stocke l’état courant du produit pour permettre des projections et des lectures rapides.
  * </p>
  * <p>
  * La table inclut les champs pour la pagination, la gestion des versions,
- * le statut, et les relations JSON pour les événements et catalogues.
+ * le statut, et la relation JSON pour les catalogues. L’historique des événements
+ * est stocké à part, en insertion seule, dans {@code read_product_registry.product_view_event}
+ * (voir {@link JpaProductViewRepository}) : sa taille n’influe pas sur le coût d’une mise à jour.
  * </p>
  */
 @Getter
@@ -70,11 +71,6 @@ public class ProductViewEntity {
     @Column(name = "status", nullable = false, columnDefinition = "text")
     private ProductLifecycle status;
 
-    /** Événements JSON associés au produit pour projection */
-    @JdbcTypeCode(SqlTypes.JSON)
-    @Column(name = "events", nullable = false, columnDefinition = "jsonb")
-    private JsonNode events;
-
     /** Catalogues JSON liés au produit */
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "catalogs", nullable = false, columnDefinition = "jsonb")
@@ -1,6 +1,7 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
 
 import org.mapstruct.Context;
@@ -9,8 +10,13 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.ReportingPolicy;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductDescriptionUpdated.ProductDescriptionUpdatedPayload;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductEventV1Payload;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductNameUpdated.ProductNameUpdatedPayload;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1.ProductRegistered.ProductRegisteredPayload;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductIdMapper;
 import org.ormi.priv.tfa.orderflow.kernel.product.SkuIdMapper;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductEventType;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewCatalogRef;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
@@ -22,8 +28,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 /**
  * Mapper MapStruct pour convertir entre {@link ProductView} et {@link ProductViewEntity}.
  * <p>
- * Permet de sérialiser les listes d’événements et de références de catalogues en JSON
- * pour la persistance, et de les désérialiser lors de la lecture.
+ * Permet de sérialiser les références de catalogues en JSON pour la persistance, et de
+ * les désérialiser lors de la lecture. Les événements de l’historique, stockés à part,
+ * sont convertis ligne à ligne.
  * </p>
  * <p>
  * Utilise {@link ProductIdMapper} et {@link SkuIdMapper} pour gérer les identifiants.
@@ -45,18 +52,20 @@ public interface ProductViewJpaMapper {
      * @param objectMapper mapper JSON pour sérialisation
      * @return entité JPA correspondante
      */
-    @Mapping(target = "events", expression = "java(productViewEventListToJsonNode(productView.getEvents(), objectMapper))")
     @Mapping(target = "catalogs", expression = "java(productViewCatalogRefListToJsonNode(productView.getCatalogs(), objectMapper))")
     ProductViewEntity toEntity(ProductView productView, @Context ObjectMapper objectMapper);
 
     /**
      * Convertit une entité JPA {@link ProductViewEntity} en vue domaine {@link ProductView}.
+     * <p>
+     * L’historique n’est pas chargé : la vue retournée ne porte aucun événement.
+     * </p>
      *
      * @param entity entité JPA
      * @param objectMapper mapper JSON pour désérialisation
      * @return vue domaine correspondante
      */
-    @Mapping(target = "events", expression = "java(jsonNodeToProductViewEventList(entity.getEvents(), objectMapper))")
+    @Mapping(target = "events", expression = "java(java.util.List.of())")
     @Mapping(target = "catalogs", expression = "java(jsonNodeToProductViewCatalogRefList(entity.getCatalogs(), objectMapper))")
     ProductView toDomain(ProductViewEntity entity, @Context ObjectMapper objectMapper);
 
@@ -67,39 +76,66 @@ public interface ProductViewJpaMapper {
      * @param entity entité JPA à mettre à jour
      * @param objectMapper mapper JSON pour sérialisation
      */
-    @Mapping(target = "events", expression = "java(productViewEventListToJsonNode(productView.getEvents(), objectMapper))")
     @Mapping(target = "catalogs", expression = "java(productViewCatalogRefListToJsonNode(productView.getCatalogs(), objectMapper))")
     void updateEntity(ProductView productView, @MappingTarget ProductViewEntity entity, @Context ObjectMapper objectMapper);
 
     // === JSON helpers ===
 
-    default JsonNode productViewEventListToJsonNode(List<ProductViewEvent> events, @Context ObjectMapper om) {
-        return om.valueToTree(events);
-    }
-
     default JsonNode productViewCatalogRefListToJsonNode(List<ProductViewCatalogRef> catalogRefs, @Context ObjectMapper om) {
         return om.valueToTree(catalogRefs);
     }
 
-    default List<ProductViewEvent> jsonNodeToProductViewEventList(JsonNode node, @Context ObjectMapper om) {
+    default List<ProductViewCatalogRef> jsonNodeToProductViewCatalogRefList(JsonNode node, @Context ObjectMapper om) {
         try {
             return om.readValue(
                 om.treeAsTokens(node),
-                new TypeReference<List<ProductViewEvent>>() {}
+                new TypeReference<List<ProductViewCatalogRef>>() {}
             );
         } catch (IOException e) {
-            throw new IllegalStateException("Failed to deserialize ProductViewEvent list", e);
+            throw new IllegalStateException("Failed to deserialize ProductViewCatalogRef list", e);
         }
     }
 
-    default List<ProductViewCatalogRef> jsonNodeToProductViewCatalogRefList(JsonNode node, @Context ObjectMapper om) {
+    // === Historique ===
+
+    /**
+     * Sérialise la charge utile d’un événement de l’historique.
+     *
+     * @param event événement de l’historique
+     * @param om mapper JSON
+     * @return la charge utile au format JSON
+     */
+    default String productViewEventPayloadToJson(ProductViewEvent event, @Context ObjectMapper om) {
         try {
-            return om.readValue(
-                om.treeAsTokens(node),
-                new TypeReference<List<ProductViewCatalogRef>>() {}
-            );
+            return om.writeValueAsString(event.getPayload());
         } catch (IOException e) {
-            throw new IllegalStateException("Failed to deserialize ProductViewCatalogRef list", e);
+            throw new IllegalStateException("Failed to serialize ProductViewEvent payload", e);
+        }
+    }
+
+    /**
+     * Reconstruit un événement de l’historique à partir d’une ligne de
+     * {@code read_product_registry.product_view_event}.
+     *
+     * @param type type de l’événement
+     * @param timestamp date de l’événement
+     * @param sequence version de l’agrégat produite par l’événement
+     * @param payload charge utile au format JSON
+     * @param om mapper JSON
+     * @return l’événement de l’historique
+     */
+    default ProductViewEvent toProductViewEvent(ProductEventType type, Instant timestamp, Long sequence,
+            String payload, @Context ObjectMapper om) {
+        final Class<? extends ProductEventV1Payload> payloadType = switch (type) {
+            case PRODUCT_REGISTERED -> ProductRegisteredPayload.class;
+            case PRODUCT_NAME_UPDATED -> ProductNameUpdatedPayload.class;
+            case PRODUCT_DESCRIPTION_UPDATED -> ProductDescriptionUpdatedPayload.class;
+            case PRODUCT_RETIRED -> ProductEventV1Payload.Empty.class;
+        };
+        try {
+            return new ProductViewEvent(type, timestamp, sequence, om.readValue(payload, payloadType));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to deserialize ProductViewEvent payload", e);
         }
     }
 }
@@ -0,0 +1,137 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+
+/**
+ * Tampon d’acquittements d’une partition du {@link OutboxPartitionedPoller}.
+ * <p>
+ * Accumule les identifiants des messages projetés avec succès et ceux en échec,
+ * ainsi que ceux abandonnés sans nouvel essai, puis les applique à l’outbox en lot via
+ * {@link OutboxRepository#markAllProcessed}, {@link OutboxRepository#markAllFailed} et
+ * {@link OutboxRepository#markAllExhausted}. Une seule transaction d’acquittement
+ * est ainsi émise pour plusieurs messages, au lieu d’une par message.
+ * </p>
+ * <p>
+ * Avant d’appliquer les acquittements, le tampon exécute {@code beforeApply} (vidage des
+ * projections différées) : un message n’est acquitté qu’une fois sa projection persistée.
+ * Si ce vidage échoue, les acquittements restent dans le tampon.
+ * </p>
+ * <p>
+ * Le tampon est alimenté par le thread de sa partition et vidé soit par ce même
+ * thread (seuil atteint), soit par le scheduler du poller (fenêtre de temps,
+ * ou avant chaque récupération de messages).
+ * </p>
+ */
+class OutboxAckBuffer {
+
+    private static final Logger LOG = Logger.getLogger(OutboxAckBuffer.class);
+
+    private final OutboxRepository outbox;
+    private final Runnable beforeApply;
+    private final int maxRetries;
+
+    private List<Long> processed = new ArrayList<>();
+    /** Messages en échec, regroupés par délai avant nouvelle tentative */
+    private Map<Integer, Map<Long, String>> failed = new HashMap<>();
+    /** Messages abandonnés sans nouvel essai */
+    private Map<Long, String> exhausted = new HashMap<>();
+    private int failedCount;
+
+    OutboxAckBuffer(OutboxRepository outbox, Runnable beforeApply, int maxRetries) {
+        this.outbox = outbox;
+        this.beforeApply = beforeApply;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Enregistre un message projeté avec succès.
+     *
+     * @param id identifiant du message d’outbox
+     * @return le nombre d’acquittements en attente
+     */
+    synchronized int ack(Long id) {
+        processed.add(id);
+        return processed.size() + failedCount + exhausted.size();
+    }
+
+    /**
+     * Enregistre un message en échec.
+     *
+     * @param id identifiant du message d’outbox
+     * @param err description de l’erreur
+     * @param retryDelayMs délai en millisecondes avant la prochaine tentative
+     * @return le nombre d’acquittements en attente
+     */
+    synchronized int fail(Long id, String err, int retryDelayMs) {
+        if (failed.computeIfAbsent(retryDelayMs, delay -> new HashMap<>()).put(id, err) == null) {
+            failedCount++;
+        }
+        return processed.size() + failedCount + exhausted.size();
+    }
+
+    /**
+     * Enregistre un message abandonné sans nouvel essai, à déplacer en dead letter.
+     *
+     * @param id identifiant du message d’outbox
+     * @param err description de l’erreur
+     * @return le nombre d’acquittements en attente
+     */
+    synchronized int exhaust(Long id, String err) {
+        exhausted.put(id, err);
+        return processed.size() + failedCount + exhausted.size();
+    }
+
+    /**
+     * Applique à l’outbox les acquittements en attente.
+     * <p>
+     * En cas d’erreur, les acquittements sont remis dans le tampon et seront
+     * retentés au prochain vidage.
+     * </p>
+     */
+    void flush() {
+        final List<Long> toDelete;
+        final Map<Integer, Map<Long, String>> toFail;
+        final Map<Long, String> toExhaust;
+        synchronized (this) {
+            if (processed.isEmpty() && failed.isEmpty() && exhausted.isEmpty()) {
+                return;
+            }
+            toDelete = processed;
+            toFail = failed;
+            toExhaust = exhausted;
+            processed = new ArrayList<>();
+            failed = new HashMap<>();
+            exhausted = new HashMap<>();
+            failedCount = 0;
+        }
+        try {
+            beforeApply.run();
+            outbox.markAllProcessed(toDelete);
+            toDelete.clear();
+            for (var it = toFail.entrySet().iterator(); it.hasNext();) {
+                final var byDelay = it.next();
+                outbox.markAllFailed(byDelay.getValue(), byDelay.getKey());
+                it.remove();
+            }
+            outbox.markAllExhausted(toExhaust, maxRetries);
+            toExhaust.clear();
+        } catch (Exception e) {
+            LOG.errorf("Failed to flush outbox acknowledgments, will retry: %s", e.getMessage());
+            synchronized (this) {
+                processed.addAll(toDelete);
+                toFail.forEach((delay, errors) -> errors.forEach((id, err) -> {
+                    if (failed.computeIfAbsent(delay, d -> new HashMap<>()).putIfAbsent(id, err) == null) {
+                        failedCount++;
+                    }
+                }));
+                toExhaust.forEach(exhausted::putIfAbsent);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxDispatcher;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxBacklog;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Métriques du pipeline outbox → projections, exposées sur {@code /q/metrics}.
+ * <p>
+ * Backlog, mesuré toutes les {@code BACKLOG_REFRESH_INTERVAL} par une requête unique
+ * (voir {@link OutboxRepository#backlog(int)}) afin que le scrape ne touche pas la base :
+ * <ul>
+ *   <li>{@code outbox.depth} : messages restant à traiter ;</li>
+ *   <li>{@code outbox.lag} : âge du plus ancien message prêt, soit le retard du modèle
+ *       de lecture, calculé à chaque scrape à partir de la dernière mesure.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Exécution, par voie du {@link OutboxDispatcher} (tag {@code aggregate_type}) :
+ * {@code outbox.lane.queue.depth} (projections en attente ou en cours) et
+ * {@code outbox.lane.inflight.aggregates} (agrégats actifs), ainsi que
+ * {@code outbox.partitions.owned} (partitions logiques détenues par l’instance).
+ * </p>
+ * <p>
+ * Traitement :
+ * <ul>
+ *   <li>{@code outbox.projection.latency} : histogramme de latence des projections, par
+ *       {@code event_type}, {@code outcome} ({@code success}, {@code noop}, {@code pending},
+ *       {@code failure}, {@code error}) et {@code mode} ({@code single}, {@code batch}) ;</li>
+ *   <li>{@code outbox.retries.scheduled} et {@code outbox.dead.letter} : nouvelles tentatives
+ *       planifiées et messages abandonnés ;</li>
+ *   <li>{@code outbox.poll.duration} : durée d’un cycle de polling, drain compris.</li>
+ * </ul>
+ * </p>
+ */
+@ApplicationScoped
+public class OutboxMetrics {
+
+    private static final Duration BACKLOG_REFRESH_INTERVAL = Duration.ofSeconds(15);
+
+    private static final Logger LOG = Logger.getLogger(OutboxMetrics.class);
+
+    private final MeterRegistry registry;
+    private final OutboxRepository outbox;
+    private final Timer pollDuration;
+    private final Counter deadLettered;
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-metrics"));
+
+    private volatile OutboxBacklog backlog = new OutboxBacklog(0, null);
+
+    @Inject
+    public OutboxMetrics(
+            MeterRegistry registry,
+            OutboxRepository outbox,
+            OutboxDispatcher dispatcher,
+            OutboxPartitionOwnership ownership) {
+        this.registry = registry;
+        this.outbox = outbox;
+        Gauge.builder("outbox.depth", this, m -> m.backlog.depth())
+                .description("Outbox messages still to be processed")
+                .register(registry);
+        TimeGauge.builder("outbox.lag", this, TimeUnit.MILLISECONDS,
+                m -> m.backlog.lag(Instant.now()).toMillis())
+                .description("Age of the oldest ready outbox message")
+                .register(registry);
+        Gauge.builder("outbox.partitions.owned", ownership, o -> o.ownedPartitions().size())
+                .description("Logical outbox partitions owned by this instance")
+                .register(registry);
+        dispatcher.weights().keySet().forEach(type -> {
+            Gauge.builder("outbox.lane.queue.depth", dispatcher, d -> d.pendingTasks(type))
+                    .description("Pending or running aggregate projections in the lane")
+                    .tag("aggregate_type", type)
+                    .register(registry);
+            Gauge.builder("outbox.lane.inflight.aggregates", dispatcher, d -> d.activeAggregates(type))
+                    .description("Aggregates with a pending or running projection in the lane")
+                    .tag("aggregate_type", type)
+                    .register(registry);
+        });
+        this.pollDuration = Timer.builder("outbox.poll.duration")
+                .description("Duration of an outbox polling cycle")
+                .register(registry);
+        this.deadLettered = Counter.builder("outbox.dead.letter")
+                .description("Outbox messages moved to the dead letter table")
+                .register(registry);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        scheduler.scheduleWithFixedDelay(this::refreshBacklog, 0, BACKLOG_REFRESH_INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Démarre la mesure d’un cycle de polling.
+     *
+     * @return l’échantillon à passer à {@link #pollCompleted(Timer.Sample)}
+     */
+    public Timer.Sample pollStarted() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Termine la mesure d’un cycle de polling.
+     *
+     * @param sample échantillon retourné par {@link #pollStarted()}
+     */
+    public void pollCompleted(Timer.Sample sample) {
+        sample.stop(pollDuration);
+    }
+
+    /**
+     * Enregistre la latence d’une projection.
+     *
+     * @param eventType type d’événement projeté
+     * @param batch {@code true} pour une projection groupée par agrégat
+     * @param result résultat de la projection, ou {@code null} si elle a levé une exception
+     * @param elapsedNanos durée de la projection en nanosecondes
+     */
+    public void recordProjection(String eventType, boolean batch, ProjectionResult<?> result, long elapsedNanos) {
+        Timer.builder("outbox.projection.latency")
+                .description("Latency of outbox event projections")
+                .tag("event_type", eventType)
+                .tag("outcome", outcomeOf(result))
+                .tag("mode", batch ? "batch" : "single")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Enregistre une nouvelle tentative planifiée.
+     *
+     * @param aggregateType type d’agrégat du message en échec
+     */
+    public void retryScheduled(String aggregateType) {
+        registry.counter("outbox.retries.scheduled", "aggregate_type", aggregateType).increment();
+    }
+
+    /**
+     * Enregistre des messages déplacés vers la dead letter.
+     *
+     * @param count nombre de messages déplacés
+     */
+    public void deadLettered(int count) {
+        deadLettered.increment(count);
+    }
+
+    private void refreshBacklog() {
+        try {
+            backlog = outbox.backlog(OutboxPartitionedPoller.MAX_RETRIES);
+        } catch (Exception e) {
+            LOG.debugf("Failed to measure outbox backlog: %s", e.getMessage());
+        }
+    }
+
+    private static String outcomeOf(ProjectionResult<?> result) {
+        if (result == null) {
+            return "error";
+        }
+        if (result.isSuccess()) {
+            return "success";
+        }
+        if (result.isPending()) {
+            return "pending";
+        }
+        return result.isFailure() ? "failure" : "noop";
+    }
+}
@@ -0,0 +1,129 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.ProjectionIngestion;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.checkpoint.EventLogCheckpointConsumer;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.PGProperty;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Écoute les notifications PostgreSQL émises lors de la publication dans l’outbox.
+ * <p>
+ * Une connexion dédiée, ouverte hors du pool de la datasource pour ne pas y occuper
+ * durablement une place, exécute {@code LISTEN} sur {@link OutboxRepository#READY_CHANNEL}
+ * et réveille le {@link OutboxPartitionedPoller} dès qu’une notification arrive,
+ * ce qui ramène la latence de projection à quelques millisecondes sans polling actif.
+ * En mode {@code checkpoint}, c’est l’{@link EventLogCheckpointConsumer} qui est réveillé.
+ * </p>
+ * <p>
+ * En cas de perte de connexion, l’écoute est rétablie après un court délai et un cycle
+ * de polling est déclenché pour rattraper les notifications manquées.
+ * </p>
+ */
+@ApplicationScoped
+public class OutboxNotificationListener {
+
+    private static final int RECEIVE_TIMEOUT_MS = 500;
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private static final Logger LOG = Logger.getLogger(OutboxNotificationListener.class);
+
+    private final Runnable wakeUp;
+    private final ProjectionIngestion ingestion;
+    private final String jdbcUrl;
+    private final String username;
+    private final Optional<String> password;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @Inject
+    public OutboxNotificationListener(
+            OutboxPartitionedPoller poller,
+            EventLogCheckpointConsumer checkpointConsumer,
+            @ConfigProperty(name = ProjectionIngestion.CONFIG_KEY, defaultValue = "outbox") ProjectionIngestion ingestion,
+            @ConfigProperty(name = "quarkus.datasource.jdbc.url") String jdbcUrl,
+            @ConfigProperty(name = "quarkus.datasource.username") String username,
+            @ConfigProperty(name = "quarkus.datasource.password") Optional<String> password) {
+        this.wakeUp = ingestion == ProjectionIngestion.CHECKPOINT ? checkpointConsumer::wakeUp : poller::wakeUp;
+        this.ingestion = ingestion;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (ingestion != ProjectionIngestion.OUTBOX && ingestion != ProjectionIngestion.CHECKPOINT) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("outbox-listener")
+                .daemon()
+                .start(this::listen);
+        LOG.info("OutboxNotificationListener listening on channel " + OutboxRepository.READY_CHANNEL);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = openListenConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + OutboxRepository.READY_CHANNEL);
+                }
+                final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                // Rattrape les messages publiés pendant que l’écoute était interrompue
+                wakeUp.run();
+                while (running) {
+                    final PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        wakeUp.run();
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.warnf("Outbox notification listener disconnected, retrying in %s: %s",
+                        RECONNECT_DELAY, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Connection openListenConnection() throws SQLException {
+        final Properties properties = new Properties();
+        PGProperty.USER.set(properties, username);
+        password.ifPresent(value -> PGProperty.PASSWORD.set(properties, value));
+        PGProperty.APPLICATION_NAME.set(properties, "outbox-listener");
+        return DriverManager.getConnection(jdbcUrl, properties);
+    }
+}
@@ -0,0 +1,229 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.ProjectionIngestion;
+import org.postgresql.PGProperty;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Répartit les partitions logiques de l’outbox entre les instances du service de lecture.
+ * <p>
+ * L’outbox est découpée en {@code PARTITION_COUNT} partitions logiques fixes ; un agrégat
+ * appartient toujours à la même partition (voir
+ * {@link org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository#claimReadyByAggregateType(String, String, int, int, int, int, java.util.Collection)}).
+ * Chaque partition est détenue par une seule instance au travers d’un verrou consultatif
+ * de session PostgreSQL ({@code pg_try_advisory_lock}) pris sur une connexion dédiée,
+ * ouverte hors du pool de la datasource.
+ * </p>
+ * <p>
+ * Chaque instance tient également un verrou d’appartenance, ce qui permet de compter les
+ * instances vivantes et d’en déduire la part équitable de chacune. Le rééquilibrage est
+ * périodique : une instance en surplus libère des partitions, une instance en déficit
+ * acquiert les partitions libres. À la mort d’une instance, sa connexion se ferme,
+ * PostgreSQL libère ses verrous et les autres instances reprennent ses partitions au
+ * rééquilibrage suivant.
+ * </p>
+ * <p>
+ * Pendant un transfert, les baux de l’outbox empêchent toujours deux instances de
+ * traiter les messages d’un même agrégat.
+ * </p>
+ */
+@ApplicationScoped
+public class OutboxPartitionOwnership {
+
+    /** Nombre de partitions logiques, identique pour toutes les instances */
+    public static final int PARTITION_COUNT = 64;
+
+    private static final int PARTITION_LOCK_NAMESPACE = 0x4f42_5850;
+    private static final int MEMBERSHIP_LOCK_NAMESPACE = 0x4f42_584d;
+    private static final int MAX_MEMBERS = 1024;
+    private static final int REBALANCE_INTERVAL_MS = 5_000;
+
+    private static final String SQL_TRY_LOCK = "SELECT pg_try_advisory_lock(?, ?)";
+    private static final String SQL_UNLOCK = "SELECT pg_advisory_unlock(?, ?)";
+    private static final String SQL_COUNT_MEMBERS = "SELECT count(*) FROM pg_locks"
+            + " WHERE locktype = 'advisory' AND objsubid = 2 AND granted AND classid::bigint = ?";
+
+    private static final Logger LOG = Logger.getLogger(OutboxPartitionOwnership.class);
+
+    private final ProjectionIngestion ingestion;
+    private final String jdbcUrl;
+    private final String username;
+    private final Optional<String> password;
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-partitions"));
+    private final Set<Integer> owned = new HashSet<>();
+    private final CopyOnWriteArrayList<Runnable> acquisitionListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Set<Integer> ownedSnapshot = Set.of();
+    private Connection connection;
+
+    @Inject
+    public OutboxPartitionOwnership(
+            @ConfigProperty(name = ProjectionIngestion.CONFIG_KEY, defaultValue = "outbox") ProjectionIngestion ingestion,
+            @ConfigProperty(name = "quarkus.datasource.jdbc.url") String jdbcUrl,
+            @ConfigProperty(name = "quarkus.datasource.username") String username,
+            @ConfigProperty(name = "quarkus.datasource.password") Optional<String> password) {
+        this.ingestion = ingestion;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (ingestion != ProjectionIngestion.OUTBOX) {
+            // Aucune partition à détenir hors du mode outbox
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::rebalance, 0, REBALANCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+        ownedSnapshot = Set.of();
+        closeQuietly();
+    }
+
+    /**
+     * Retourne les partitions actuellement détenues par cette instance.
+     *
+     * @return instantané immuable des partitions détenues
+     */
+    public Set<Integer> ownedPartitions() {
+        return ownedSnapshot;
+    }
+
+    /**
+     * Enregistre une action exécutée lorsque de nouvelles partitions sont acquises,
+     * typiquement pour déclencher immédiatement un cycle de polling.
+     *
+     * @param listener action à exécuter
+     */
+    public void onPartitionsAcquired(Runnable listener) {
+        acquisitionListeners.add(listener);
+    }
+
+    /**
+     * Ajuste le nombre de partitions détenues à la part équitable de cette instance.
+     */
+    private void rebalance() {
+        try {
+            if (connection == null || connection.isClosed()) {
+                connect();
+            }
+            final long members = countMembers();
+            final int fairShare = (int) Math.ceil((double) PARTITION_COUNT / Math.max(members, 1));
+            boolean acquired = false;
+            // Libère le surplus
+            for (Integer partition : Set.copyOf(owned)) {
+                if (owned.size() <= fairShare) {
+                    break;
+                }
+                unlock(PARTITION_LOCK_NAMESPACE, partition);
+                owned.remove(partition);
+            }
+            // Acquiert les partitions libres, en partant d’un décalage aléatoire
+            final int offset = ThreadLocalRandom.current().nextInt(PARTITION_COUNT);
+            for (int i = 0; i < PARTITION_COUNT && owned.size() < fairShare; i++) {
+                final int partition = (offset + i) % PARTITION_COUNT;
+                if (!owned.contains(partition) && tryLock(PARTITION_LOCK_NAMESPACE, partition)) {
+                    owned.add(partition);
+                    acquired = true;
+                }
+            }
+            publish();
+            if (acquired) {
+                LOG.infof("Now owning %d/%d outbox partitions (%d live instances)",
+                        owned.size(), PARTITION_COUNT, members);
+                acquisitionListeners.forEach(Runnable::run);
+            }
+        } catch (SQLException e) {
+            LOG.warnf("Outbox partition ownership lost, retrying in %d ms: %s", REBALANCE_INTERVAL_MS,
+                    e.getMessage());
+            // Les verrous de session disparaissent avec la connexion
+            closeQuietly();
+        }
+    }
+
+    private void connect() throws SQLException {
+        final Properties properties = new Properties();
+        PGProperty.USER.set(properties, username);
+        password.ifPresent(value -> PGProperty.PASSWORD.set(properties, value));
+        PGProperty.APPLICATION_NAME.set(properties, "outbox-partitions");
+        connection = DriverManager.getConnection(jdbcUrl, properties);
+        owned.clear();
+        for (int slot = 0; slot < MAX_MEMBERS; slot++) {
+            if (tryLock(MEMBERSHIP_LOCK_NAMESPACE, slot)) {
+                return;
+            }
+        }
+        throw new SQLException("No free outbox membership slot among " + MAX_MEMBERS);
+    }
+
+    private long countMembers() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SQL_COUNT_MEMBERS)) {
+            statement.setLong(1, MEMBERSHIP_LOCK_NAMESPACE);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private boolean tryLock(int namespace, int key) throws SQLException {
+        return execute(SQL_TRY_LOCK, namespace, key);
+    }
+
+    private boolean unlock(int namespace, int key) throws SQLException {
+        return execute(SQL_UNLOCK, namespace, key);
+    }
+
+    private boolean execute(String sql, int namespace, int key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, namespace);
+            statement.setInt(2, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void publish() {
+        ownedSnapshot = Set.copyOf(owned);
+    }
+
+    private void closeQuietly() {
+        owned.clear();
+        publish();
+        if (connection != null) {
+            try {
+                // Fermer la session libère tous ses verrous consultatifs
+                connection.close();
+            } catch (SQLException e) {
+                LOG.debug("Failed to close outbox partition connection", e);
+            }
+            connection = null;
+        }
+    }
+}
@@ -1,28 +1,44 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.HierarchicalTimingWheel;
 import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
-import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxDispatcher;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxEventHandler;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxMessage;
 import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
-import org.ormi.priv.tfa.orderflow.kernel.common.AggregateType;
-import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
-import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductEventVersion;
-import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
-import org.ormi.priv.tfa.orderflow.productregistry.read.application.ProjectionDispatcher;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.ProjectionIngestion;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.Startup;
 import io.quarkus.runtime.StartupEvent;
@@ -33,20 +49,26 @@ import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
 /**
- * Poller partitionné pour traiter les messages de l’outbox produit.
+ * Poller partitionné pour traiter les messages de l’outbox.
  * <p>
- * Récupère périodiquement les messages prêts à être projetés depuis l’outbox,
- * les répartit sur plusieurs partitions en fonction de l’aggregateId,
- * et applique le {@link ProjectionDispatcher} pour mettre à jour les vues en lecture.
+ * Réserve par bail les messages prêts des partitions détenues par cette instance (voir
+ * {@link OutboxPartitionOwnership}), puis les projette via les voies par type d’agrégat
+ * de l’{@link OutboxDispatcher} : strictement dans l’ordre pour un même agrégat, en
+ * parallèle entre agrégats. Le polling est réveillé par {@link OutboxNotificationListener},
+ * avec un polling périodique lent en filet de sécurité.
  * </p>
  * <p>
- * Gère les retries, les blocages temporaires, et marque les messages comme échoués
- * en cas de projection échouée ou d’erreur inattendue.
+ * Gère les retries avec backoff exponentiel planifiés sur une
+ * {@link HierarchicalTimingWheel}, et déplace en dead letter les messages ayant épuisé
+ * leurs tentatives. Un événement en attente de réordonnancement est retenté avec le même
+ * backoff et consomme une tentative ; s’il attend une séquence déjà partie en dead letter,
+ * il y est déplacé sans attendre. Les acquittements
+ * sont appliqués en lot via {@link OutboxAckBuffer} et les métriques publiées via
+ * {@link OutboxMetrics}.
  * </p>
  * <p>
- * Le nombre de partitions est basé sur le nombre de processeurs disponibles,
- * et le poller démarre automatiquement au démarrage de l’application
- * et s’arrête proprement lors de l’arrêt.
+ * Le poller n’est démarré qu’avec {@code orderflow.projection.ingestion=outbox} (par défaut)
+ * et s’arrête proprement lors de l’arrêt de l’application.
  * </p>
  */
 
@@ -56,94 +78,458 @@ public class OutboxPartitionedPoller {
 
     private static final int PARTITIONS = Runtime.getRuntime().availableProcessors();
     private static final int BATCH_SIZE = 10;
-    private static final int POLL_INTERVAL_MS = 1000;
-    private static final int MAX_RETRIES = 3;
-    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int BATCH_GROWTH_FACTOR = 2;
+    private static final int SAFETY_NET_POLL_INTERVAL_MS = 30_000;
+    static final int MAX_RETRIES = 6;
+    private static final Duration RETRY_BASE_DELAY = Duration.ofSeconds(1);
+    private static final Duration RETRY_MAX_DELAY = Duration.ofMinutes(5);
+    private static final Duration RETRY_WHEEL_TICK = Duration.ofMillis(100);
+    private static final int RETRY_WHEEL_SIZE = 64;
+    private static final int ACK_FLUSH_SIZE = 100;
+    private static final int ACK_FLUSH_INTERVAL_MS = 50;
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(30);
+    private static final int LEASE_RENEWAL_INTERVAL_MS = 10_000;
 
     private static final Logger LOG = Logger.getLogger(OutboxPartitionedPoller.class);
 
     private final ScheduledExecutorService pollScheduler = Executors.newSingleThreadScheduledExecutor();
-    private ExecutorService[] executors = IntStream.range(0, PARTITIONS)
-            .mapToObj(i -> Executors.newSingleThreadExecutor(r -> new Thread(r, "outbox-poller-" + i)))
-            .toArray(ExecutorService[]::new);
+    private final ScheduledExecutorService leaseScheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-lease"));
 
+    private final OutboxAckBuffer[] ackBuffers;
+    private final String ownerId = resolveOwnerId();
+    private final Set<Long> claimedIds = ConcurrentHashMap.newKeySet();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter duplicatesSkipped;
     private final Map<UUID, Instant> blockedUntil = new ConcurrentHashMap<>();
+    private final Set<UUID> deadLetteredAggregates = ConcurrentHashMap.newKeySet();
+    private final HierarchicalTimingWheel retryWheel = new HierarchicalTimingWheel("outbox-retry",
+            RETRY_WHEEL_TICK, RETRY_WHEEL_SIZE);
+    private final AtomicBoolean deadLetterPending = new AtomicBoolean(false);
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+    private final AtomicInteger drainMode = new AtomicInteger(0);
+    private final AtomicInteger currentBatchSize = new AtomicInteger(BATCH_SIZE);
 
     private final OutboxRepository outbox;
-    private final ProjectionDispatcher dispatcher;
-    private final ProductEventJpaMapper mapper;
+    private final OutboxDispatcher dispatcher;
+    private final OutboxPartitionOwnership ownership;
+    private final OutboxMetrics metrics;
+    private final ProjectionIngestion ingestion;
 
     @Inject
     public OutboxPartitionedPoller(
             OutboxRepository outboxRepository,
-            ProjectionDispatcher dispatcher,
-            ProductEventJpaMapper mapper) {
+            OutboxDispatcher dispatcher,
+            OutboxPartitionOwnership ownership,
+            OutboxMetrics metrics,
+            MeterRegistry registry,
+            @ConfigProperty(name = ProjectionIngestion.CONFIG_KEY, defaultValue = "outbox") ProjectionIngestion ingestion) {
         this.outbox = outboxRepository;
         this.dispatcher = dispatcher;
-        this.mapper = mapper;
+        this.ownership = ownership;
+        this.metrics = metrics;
+        this.ingestion = ingestion;
+        this.ackBuffers = IntStream.range(0, PARTITIONS)
+                .mapToObj(i -> new OutboxAckBuffer(outboxRepository, dispatcher::flushHandlers, MAX_RETRIES))
+                .toArray(OutboxAckBuffer[]::new);
+        Gauge.builder("outbox.poller.drain.mode", drainMode, AtomicInteger::get)
+                .description("1 when the poller is draining a backlog, 0 in steady state")
+                .register(registry);
+        Gauge.builder("outbox.poller.batch.size", currentBatchSize, AtomicInteger::get)
+                .description("Current outbox fetch batch size")
+                .register(registry);
+        Gauge.builder("outbox.poller.queue.depth", dispatcher, OutboxDispatcher::pendingTasks)
+                .description("Pending or running aggregate projection tasks")
+                .register(registry);
+        Gauge.builder("outbox.poller.inflight", inFlight, Set::size)
+                .description("Outbox messages submitted and not yet processed")
+                .register(registry);
+        this.duplicatesSkipped = Counter.builder("outbox.poller.duplicates.skipped")
+                .description("Outbox messages not submitted because they were already in flight")
+                .register(registry);
     }
 
     void onStart(@Observes StartupEvent event) {
-        pollScheduler.scheduleWithFixedDelay(this::poll, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
-        // TODO: Hey, log some info
-        LOG.info("OutboxPartitionedPoller started with " + PARTITIONS + " partitions.");
+        if (ingestion != ProjectionIngestion.OUTBOX) {
+            return;
+        }
+        ownership.onPartitionsAcquired(this::wakeUp);
+        pollScheduler.scheduleWithFixedDelay(this::poll, 0, SAFETY_NET_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        pollScheduler.scheduleWithFixedDelay(this::flushAcks, ACK_FLUSH_INTERVAL_MS, ACK_FLUSH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        leaseScheduler.scheduleWithFixedDelay(this::renewLeases, LEASE_RENEWAL_INTERVAL_MS,
+                LEASE_RENEWAL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        LOG.info("OutboxPartitionedPoller started as " + ownerId + ".");
     }
 
     void onStop(@Observes ShutdownEvent event) {
         pollScheduler.shutdownNow();
-        Arrays.stream(executors).forEach(ExecutorService::shutdownNow);
-        // TODO: Hey, log some info
+        leaseScheduler.shutdownNow();
+        retryWheel.close();
+        flushAcks();
+        LOG.info("OutboxPartitionedPoller stopped.");
     }
 
-    @ActivateRequestContext
-    @Transactional
+    /**
+     * Demande un cycle de polling immédiat.
+     * <p>
+     * Les réveils sont fusionnés : tant qu’un cycle demandé n’a pas démarré,
+     * les appels suivants sont ignorés. Les cycles s’exécutent sur le thread
+     * unique du scheduler et ne se chevauchent donc jamais.
+     * </p>
+     */
+    public void wakeUp() {
+        if (!wakeUpPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            pollScheduler.execute(() -> {
+                wakeUpPending.set(false);
+                poll();
+            });
+        } catch (RejectedExecutionException e) {
+            // Scheduler arrêté, le poller est en cours d’arrêt
+            wakeUpPending.set(false);
+        }
+    }
+
+    /**
+     * Exécute un cycle de polling.
+     * <p>
+     * En régime normal, un seul lot de {@code BATCH_SIZE} messages est traité.
+     * Lorsqu’un lot revient plein, un backlog est détecté et le poller passe en
+     * mode drain : il enchaîne immédiatement les lots en doublant leur taille
+     * jusqu’à {@code MAX_BATCH_SIZE}, puis revient en régime normal dès qu’un lot
+     * incomplet indique que le retard est rattrapé.
+     * </p>
+     * <p>
+     * Chaque lot est réservé par bail, traité, acquitté puis libéré avant le suivant :
+     * les messages encore présents dans l’outbox ne sont ainsi jamais resoumis pendant
+     * leur traitement, ni par cette instance ni par une autre.
+     * </p>
+     */
     protected void poll() {
+        final Timer.Sample sample = metrics.pollStarted();
         try {
-            List<OutboxEntity> readyMessages = outbox
-                    .fetchReadyByAggregateTypeOrderByAggregateVersion(AggregateType.PRODUCT.value(), BATCH_SIZE,
-                            MAX_RETRIES);
-            if (readyMessages.isEmpty())
-                return;
-            readyMessages.forEach((msg) -> {
-                UUID aggregateId = msg.getSourceEvent().getAggregateId();
-                Instant blockedTime = blockedUntil.get(aggregateId);
-                if (blockedTime != null && blockedTime.isAfter(Instant.now())) {
-                    // Still blocked, skip processing
+            int batchSize = BATCH_SIZE;
+            while (true) {
+                flushAcks();
+                final Set<Integer> partitions = ownership.ownedPartitions();
+                if (partitions.isEmpty()) {
+                    // Aucune partition détenue pour le moment
+                    enterSteadyMode();
                     return;
                 }
-                // Get corresponding partition
-                int partition = Math.floorMod(aggregateId.hashCode(), PARTITIONS);
-                executors[partition].submit(() -> process(msg));
-            });
+                final List<OutboxMessage> readyMessages = claimReady(batchSize, partitions);
+                readyMessages.forEach(msg -> claimedIds.add(msg.id()));
+                final int processed;
+                try {
+                    processed = dispatchAndAwait(readyMessages);
+                    flushAcks();
+                    moveExhaustedToDeadLetter();
+                } finally {
+                    claimedIds.clear();
+                }
+                if (readyMessages.size() < batchSize || processed == 0) {
+                    // Retard rattrapé, ou aucun progrès possible : retour au régime normal
+                    enterSteadyMode();
+                    return;
+                }
+                batchSize = Math.min(batchSize * BATCH_GROWTH_FACTOR, MAX_BATCH_SIZE);
+                enterDrainMode(batchSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             LOG.error("Error occurred while polling outbox messages", e);
+            enterSteadyMode();
+        } finally {
+            metrics.pollCompleted(sample);
+        }
+    }
+
+    @ActivateRequestContext
+    @Transactional
+    protected List<OutboxMessage> claimReady(int batchSize, Set<Integer> partitions) {
+        return outbox.claimReadyByAggregateTypes(dispatcher.weights(), ownerId, batchSize,
+                MAX_RETRIES, Long.valueOf(LEASE_DURATION.toMillis()).intValue(),
+                OutboxPartitionOwnership.PARTITION_COUNT, partitions);
+    }
+
+    /**
+     * Prolonge le bail des messages réservés et pas encore acquittés.
+     */
+    private void renewLeases() {
+        if (claimedIds.isEmpty()) {
+            return;
+        }
+        try {
+            outbox.renewLeases(ownerId, List.copyOf(claimedIds), Long.valueOf(LEASE_DURATION.toMillis()).intValue());
+        } catch (Exception e) {
+            LOG.warnf("Failed to renew outbox leases for %s: %s", ownerId, e.getMessage());
         }
     }
 
-    private void process(OutboxEntity outboxMsg) {
-        var ev = outboxMsg.getSourceEvent();
+    private static String resolveOwnerId() {
+        String host;
         try {
-            if (ev.getEventVersion() == ProductEventVersion.V1.getValue()) {
-                final ProjectionResult<ProductView> result = dispatcher.dispatch(
-                        mapper.toProductEventV1(ev));
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID();
+    }
+
+    /**
+     * Regroupe les messages par agrégat, confie un traitement par agrégat
+     * à l’{@link OutboxDispatcher} et attend la fin de leur traitement.
+     *
+     * @param readyMessages messages à projeter, triés par agrégat puis par version
+     * @return le nombre de messages projetés avec succès
+     */
+    private int dispatchAndAwait(List<OutboxMessage> readyMessages)
+            throws InterruptedException, ExecutionException {
+        final Map<UUID, List<OutboxMessage>> byAggregate = readyMessages.stream()
+                .collect(Collectors.groupingBy(
+                        msg -> msg.event().aggregateId(),
+                        LinkedHashMap::new,
+                        Collectors.toList()));
+        final List<List<OutboxMessage>> pending = new ArrayList<>(byAggregate.size());
+        for (Map.Entry<UUID, List<OutboxMessage>> group : byAggregate.entrySet()) {
+            final UUID aggregateId = group.getKey();
+            Instant blockedTime = blockedUntil.get(aggregateId);
+            if (blockedTime != null && blockedTime.isAfter(Instant.now())) {
+                // Still blocked, skip processing
+                continue;
+            }
+            final List<OutboxMessage> fresh = group.getValue().stream()
+                    .filter(this::markInFlight)
+                    .toList();
+            if (fresh.isEmpty()) {
+                continue;
+            }
+            pending.add(fresh);
+        }
+        return dispatcher.dispatch(pending, fresh -> {
+            try {
+                return processAggregate(fresh);
+            } finally {
+                fresh.forEach(msg -> inFlight.remove(msg.id()));
+            }
+        });
+    }
+
+    /**
+     * Applique les acquittements en attente de toutes les partitions.
+     */
+    private void flushAcks() {
+        Arrays.stream(ackBuffers).forEach(OutboxAckBuffer::flush);
+    }
+
+    private OutboxAckBuffer ackBufferOf(UUID aggregateId) {
+        return ackBuffers[Math.floorMod(aggregateId.hashCode(), PARTITIONS)];
+    }
+
+    private void ack(OutboxMessage outboxMsg) {
+        final OutboxAckBuffer buffer = ackBufferOf(outboxMsg.event().aggregateId());
+        if (buffer.ack(outboxMsg.id()) >= ACK_FLUSH_SIZE) {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * Marque un message en échec, planifie sa prochaine tentative et bloque son agrégat
+     * jusque-là.
+     */
+    private void fail(OutboxMessage outboxMsg, String err) {
+        final UUID aggregateId = outboxMsg.event().aggregateId();
+        final Duration delay = retryDelay(outboxMsg.attempts());
+        if (outboxMsg.attempts() + 1 >= MAX_RETRIES) {
+            deadLetterPending.set(true);
+            deadLetteredAggregates.add(aggregateId);
+        } else {
+            metrics.retryScheduled(outboxMsg.event().aggregateType());
+        }
+        final OutboxAckBuffer buffer = ackBufferOf(aggregateId);
+        if (buffer.fail(outboxMsg.id(), err, Long.valueOf(delay.toMillis()).intValue()) >= ACK_FLUSH_SIZE) {
+            buffer.flush();
+        }
+        block(aggregateId, delay);
+    }
+
+    /**
+     * Abandonne sans nouvel essai un message retenu derrière une séquence partie en dead
+     * letter : aucune nouvelle tentative ne pourrait aboutir.
+     */
+    private void exhaust(OutboxMessage outboxMsg, String err) {
+        final UUID aggregateId = outboxMsg.event().aggregateId();
+        deadLetterPending.set(true);
+        LOG.warnf("Abandoning outbox message id=%d (aggregateId=%s) held behind a dead-lettered sequence: %s",
+                outboxMsg.id(), aggregateId, err);
+        final OutboxAckBuffer buffer = ackBufferOf(aggregateId);
+        if (buffer.exhaust(outboxMsg.id(), err) >= ACK_FLUSH_SIZE) {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * Bloque un agrégat pendant un délai. À l’échéance, la roue temporelle retire
+     * le blocage et relance un cycle de polling.
+     */
+    private void block(UUID aggregateId, Duration delay) {
+        final Instant until = Instant.now().plus(delay);
+        blockedUntil.put(aggregateId, until);
+        retryWheel.schedule(delay, () -> {
+            blockedUntil.remove(aggregateId, until);
+            wakeUp();
+        });
+    }
+
+    /**
+     * Calcule le délai avant la prochaine tentative : croissance exponentielle
+     * plafonnée à {@code RETRY_MAX_DELAY}, dont la seconde moitié est tirée au hasard.
+     *
+     * @param attempts nombre de tentatives déjà échouées
+     * @return délai avant la prochaine tentative
+     */
+    private static Duration retryDelay(int attempts) {
+        final long ceilingMs = Math.min(
+                RETRY_BASE_DELAY.toMillis() << Math.min(attempts, 30),
+                RETRY_MAX_DELAY.toMillis());
+        final long halfMs = ceilingMs / 2;
+        return Duration.ofMillis(halfMs + ThreadLocalRandom.current().nextLong(halfMs + 1));
+    }
+
+    /**
+     * Déplace vers la dead letter les messages ayant épuisé leurs tentatives,
+     * une fois leur dernier échec acquitté.
+     */
+    private void moveExhaustedToDeadLetter() {
+        if (!deadLetterPending.getAndSet(false)) {
+            return;
+        }
+        final int moved = outbox.moveExhaustedToDeadLetter(MAX_RETRIES);
+        if (moved > 0) {
+            metrics.deadLettered(moved);
+            LOG.warnf("Moved %d exhausted outbox messages to the dead letter table", moved);
+        }
+    }
+
+    /**
+     * Enregistre un message comme en vol.
+     *
+     * @param outboxMsg message à soumettre
+     * @return {@code false} si le message est déjà soumis et doit être écarté
+     */
+    private boolean markInFlight(OutboxMessage outboxMsg) {
+        if (inFlight.add(outboxMsg.id())) {
+            return true;
+        }
+        duplicatesSkipped.increment();
+        return false;
+    }
+
+    private void enterDrainMode(int batchSize) {
+        if (drainMode.getAndSet(1) == 0) {
+            LOG.info("Outbox backlog detected, switching to drain mode");
+        }
+        currentBatchSize.set(batchSize);
+    }
+
+    private void enterSteadyMode() {
+        if (drainMode.getAndSet(0) == 1) {
+            LOG.info("Outbox backlog drained, back to steady polling");
+        }
+        currentBatchSize.set(BATCH_SIZE);
+    }
+
+    /**
+     * Projette en un seul lot les messages en attente d’un même agrégat.
+     * <p>
+     * Lorsque tous les messages relèvent du même handler, le lot est replié via
+     * {@link OutboxEventHandler#handleAll} : une lecture et une écriture de la vue par
+     * agrégat, quel que soit le nombre d’événements. Sinon, ou si le lot ne produit pas
+     * une projection réussie (échec, no-op, attente, traitement groupé non pris en charge), les
+     * messages sont retraités un par un afin d’isoler le message fautif ; le traitement
+     * s’arrête alors au premier échec pour préserver l’ordre de l’agrégat.
+     * </p>
+     *
+     * @param messages messages d’un même agrégat, triés par version
+     * @return le nombre de messages acquittés : projetés, ou abandonnés derrière une
+     *         séquence partie en dead letter
+     */
+    private int processAggregate(List<OutboxMessage> messages) {
+        final EventLogRecord first = messages.get(0).event();
+        final boolean singleVersion = messages.stream()
+                .allMatch(msg -> msg.event().eventVersion() == first.eventVersion());
+        final Optional<OutboxEventHandler> handler = dispatcher.handlerFor(first.aggregateType(),
+                first.eventVersion());
+        if (messages.size() > 1 && singleVersion && handler.isPresent()) {
+            final long start = System.nanoTime();
+            ProjectionResult<?> result = null;
+            try {
+                result = handler.get().handleAll(messages.stream()
+                        .map(OutboxMessage::event)
+                        .toList());
                 if (result.isSuccess()) {
-                    outbox.delete(outboxMsg);
-                    return;
-                }
-                if (result.isNoOp()) {
-                    outbox.markFailed(outboxMsg, result.getNoopReason(),
-                            Long.valueOf(RETRY_DELAY.toMillis()).intValue());
+                    messages.forEach(this::ack);
+                    return messages.size();
                 }
-                if (result.isFailure()) {
-                    outbox.markFailed(outboxMsg, result.getError(), Long.valueOf(RETRY_DELAY.toMillis()).intValue());
+            } catch (Exception e) {
+                LOG.warnf("Batched projection failed for aggregateId=%s, falling back to per-event projection: %s",
+                        first.aggregateId(), e.getMessage());
+            } finally {
+                metrics.recordProjection(first.eventType(), true, result, System.nanoTime() - start);
+            }
+        }
+        int processed = 0;
+        for (OutboxMessage msg : messages) {
+            if (!process(msg)) {
+                break;
+            }
+            processed++;
+        }
+        return processed;
+    }
+
+    private boolean process(OutboxMessage outboxMsg) {
+        final EventLogRecord ev = outboxMsg.event();
+        final Optional<OutboxEventHandler> handler = dispatcher.handlerFor(ev.aggregateType(), ev.eventVersion());
+        if (handler.isEmpty()) {
+            fail(outboxMsg, String.format("No outbox handler for %s v%d", ev.aggregateType(), ev.eventVersion()));
+            return false;
+        }
+        final long start = System.nanoTime();
+        ProjectionResult<?> result = null;
+        try {
+            result = handler.get().handle(ev);
+            if (result.isSuccess() || result.isNoOp()) {
+                // Un no-op signale un événement déjà appliqué (livraison en double)
+                deadLetteredAggregates.remove(ev.aggregateId());
+                ack(outboxMsg);
+                return true;
+            }
+            if (result.isPending()) {
+                if (deadLetteredAggregates.contains(ev.aggregateId())) {
+                    // La séquence manquante est en dead letter : aucune nouvelle tentative ne peut aboutir
+                    exhaust(outboxMsg, result.getPendingReason());
+                    return true;
                 }
-                blockedUntil.put(outboxMsg.getSourceEvent().getAggregateId(), Instant.now().plus(RETRY_DELAY));
+                // Retenu hors ordre : compte comme une tentative, afin qu’une séquence qui ne
+                // viendra jamais ne bloque pas l’agrégat indéfiniment
+                fail(outboxMsg, result.getPendingReason());
+                return false;
             }
+            fail(outboxMsg, result.getError());
+            return false;
         } catch (Exception e) {
-            LOG.error(String.format("ProjectionDispatcher failed for outbox message id=%d, aggregateId=%s: %s",
-                    outboxMsg.getId(), ev.getAggregateId(), e.getMessage()), e);
-            outbox.markFailed(outboxMsg, e.getMessage(), Long.valueOf(RETRY_DELAY.toMillis()).intValue());
-            blockedUntil.put(outboxMsg.getSourceEvent().getAggregateId(), Instant.now().plus(RETRY_DELAY));
+            LOG.error(String.format("Outbox handler failed for outbox message id=%d, aggregateId=%s: %s",
+                    outboxMsg.id(), ev.aggregateId(), e.getMessage()), e);
+            fail(outboxMsg, e.getMessage());
+            return false;
+        } finally {
+            metrics.recordProjection(ev.eventType(), false, result, System.nanoTime() - start);
         }
     }
 }
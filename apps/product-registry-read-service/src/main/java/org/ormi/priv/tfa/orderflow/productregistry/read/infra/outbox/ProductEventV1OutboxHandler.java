@@ -0,0 +1,79 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.outbox;
+
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.outbox.OutboxEventHandler;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+import org.ormi.priv.tfa.orderflow.kernel.common.AggregateType;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+import org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductEventVersion;
+import org.ormi.priv.tfa.orderflow.productregistry.read.application.ProjectionDispatcher;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.resource.spi.IllegalStateException;
+
+/**
+ * Handler de l’outbox pour les événements produit en version 1.
+ * <p>
+ * Convertit les entrées de l’event log en {@link ProductEventV1Envelope} et les applique
+ * aux vues produit via le {@link ProjectionDispatcher}, un par un ou repliés par agrégat.
+ * Un type d’agrégat inattendu est rapporté comme un échec de projection.
+ * </p>
+ * <p>
+ * Avec l’écriture différée des vues, {@link #flush()} persiste les vues en attente, et
+ * les vues en cache sont évincées à chaque acquisition de partitions de l’outbox, leurs
+ * agrégats ayant pu être projetés par une autre instance entre-temps.
+ * </p>
+ */
+@ApplicationScoped
+public class ProductEventV1OutboxHandler implements OutboxEventHandler {
+
+    private final ProjectionDispatcher dispatcher;
+    private final ProductEventJpaMapper mapper;
+
+    @Inject
+    public ProductEventV1OutboxHandler(ProjectionDispatcher dispatcher, ProductEventJpaMapper mapper,
+            OutboxPartitionOwnership ownership) {
+        this.dispatcher = dispatcher;
+        this.mapper = mapper;
+        ownership.onPartitionsAcquired(dispatcher::evictCleanViews);
+    }
+
+    @Override
+    public String aggregateType() {
+        return AggregateType.PRODUCT.value();
+    }
+
+    @Override
+    public int eventVersion() {
+        return ProductEventVersion.V1.getValue();
+    }
+
+    @Override
+    public ProjectionResult<?> handle(EventLogRecord event) {
+        try {
+            return dispatcher.dispatch(mapper.toProductEventV1(event));
+        } catch (IllegalStateException e) {
+            return ProjectionResult.failed(e.getMessage());
+        }
+    }
+
+    @Override
+    public ProjectionResult<?> handleAll(List<EventLogRecord> events) {
+        try {
+            return dispatcher.dispatchAll(events.stream()
+                    .<ProductEventV1Envelope<?>>map(mapper::toProductEventV1)
+                    .toList());
+        } catch (IllegalStateException e) {
+            return ProjectionResult.failed(e.getMessage());
+        }
+    }
+
+    @Override
+    public void flush() {
+        dispatcher.flushPendingViews();
+    }
+}
@@ -0,0 +1,472 @@
+package org.ormi.priv.tfa.orderflow.productregistry.read.infra.rebuild;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodecs;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+import org.ormi.priv.tfa.orderflow.kernel.Product;
+import org.ormi.priv.tfa.orderflow.kernel.product.ProductEventV1Envelope;
+import org.ormi.priv.tfa.orderflow.kernel.product.jpa.ProductEventJpaMapper;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewEntity;
+import org.ormi.priv.tfa.orderflow.productregistry.read.infra.jpa.ProductViewJpaMapper;
+import org.ormi.priv.tfa.orderflow.productregistry.read.projection.ProductViewProjector;
+import org.postgresql.PGConnection;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Reconstruction complète de {@code read_product_registry.product_view} depuis
+ * {@code eventing.event_log}.
+ * <p>
+ * Une reconstruction se déroule en trois temps, en mémoire constante :
+ * <ol>
+ *   <li>Lecture : un curseur serveur ({@code FETCH_SIZE} lignes par aller-retour) parcourt
+ *       les événements produit dans l’ordre de l’index {@code ix_eventlog_aggregate}
+ *       (agrégat puis version), sans tri. Les événements d’un agrégat étant contigus, seul
+ *       l’agrégat courant est retenu avant d’être confié à son shard.</li>
+ *   <li>Projection : {@code WORKERS} shards, choisis par hachage de l’aggregateId et
+ *       alimentés par des files bornées ({@code SHARD_QUEUE_CAPACITY}), replient chaque
+ *       agrégat via {@link ProductViewProjector#projectAll} à partir d’un état vide, puis
+ *       écrivent les vues par {@code COPY} dans une table de travail non journalisée,
+ *       par lots de {@code COPY_BATCH_ROWS}, accompagnées de leur historique.</li>
+ *   <li>Bascule : la table de travail est fusionnée dans {@code product_view} en une
+ *       transaction ; une vue déjà plus avancée ({@code _version}) grâce à l’ingestion en
+ *       continu est conservée ; l’historique, en insertion seule, est complété. Les tables
+ *       de travail sont ensuite supprimées.</li>
+ * </ol>
+ * </p>
+ * <p>
+ * Une seule reconstruction peut s’exécuter à la fois. L’avancement est journalisé toutes
+ * les {@code PROGRESS_LOG_INTERVAL} et consultable via {@link #progress()}. Un agrégat dont
+ * la projection échoue est compté et journalisé, sans interrompre la reconstruction.
+ * </p>
+ */
+@ApplicationScoped
+public class ProductViewRebuilder {
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final int WORKERS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    private static final int SHARD_QUEUE_CAPACITY = 1_024;
+    private static final Duration SHARD_OFFER_TIMEOUT = Duration.ofMillis(500);
+    private static final int COPY_BATCH_ROWS = 5_000;
+    private static final Duration PROGRESS_LOG_INTERVAL = Duration.ofSeconds(10);
+
+    private static final String PRODUCT_AGGREGATE_TYPE = Product.class.getSimpleName();
+    private static final String STAGING_TABLE = "read_product_registry.product_view_rebuild";
+    private static final String EVENT_STAGING_TABLE = "read_product_registry.product_view_event_rebuild";
+    private static final String VIEW_COLUMNS = "id, _version, sku_id, name, description, status, catalogs,"
+            + " created_at, updated_at";
+    private static final String EVENT_COLUMNS = "product_id, sequence, type, occurred_at, payload";
+
+    private static final String SQL_CREATE_STAGING = "DROP TABLE IF EXISTS " + STAGING_TABLE + ", "
+            + EVENT_STAGING_TABLE + ";"
+            + " CREATE UNLOGGED TABLE " + STAGING_TABLE
+            + " (LIKE read_product_registry.product_view INCLUDING DEFAULTS);"
+            + " CREATE UNLOGGED TABLE " + EVENT_STAGING_TABLE
+            + " (LIKE read_product_registry.product_view_event)";
+    private static final String SQL_STREAM_EVENTS = "SELECT id, aggregate_type, aggregate_id, aggregate_version,"
+            + " event_type, event_version, payload::text AS payload, payload_bin, payload_codec, occurred_at"
+            + " FROM eventing.event_log WHERE aggregate_type = ?"
+            + " ORDER BY aggregate_type, aggregate_id, aggregate_version";
+    private static final String SQL_COPY = "COPY " + STAGING_TABLE + " (" + VIEW_COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String SQL_COPY_EVENTS = "COPY " + EVENT_STAGING_TABLE + " (" + EVENT_COLUMNS + ")"
+            + " FROM STDIN WITH (FORMAT csv)";
+    private static final String SQL_MERGE = "INSERT INTO read_product_registry.product_view (" + VIEW_COLUMNS + ")"
+            + " SELECT " + VIEW_COLUMNS + " FROM " + STAGING_TABLE
+            + " ON CONFLICT (id) DO UPDATE SET _version = EXCLUDED._version, sku_id = EXCLUDED.sku_id,"
+            + " name = EXCLUDED.name, description = EXCLUDED.description, status = EXCLUDED.status,"
+            + " catalogs = EXCLUDED.catalogs, created_at = EXCLUDED.created_at,"
+            + " updated_at = EXCLUDED.updated_at"
+            + " WHERE read_product_registry.product_view._version < EXCLUDED._version";
+    private static final String SQL_MERGE_EVENTS = "INSERT INTO read_product_registry.product_view_event ("
+            + EVENT_COLUMNS + ") SELECT " + EVENT_COLUMNS + " FROM " + EVENT_STAGING_TABLE
+            + " ON CONFLICT (product_id, sequence) DO NOTHING";
+    private static final String SQL_DROP_STAGING = "DROP TABLE IF EXISTS " + STAGING_TABLE + ", " + EVENT_STAGING_TABLE;
+
+    private static final List<EventLogRecord> END_OF_STREAM = List.of();
+
+    private static final Logger LOG = Logger.getLogger(ProductViewRebuilder.class);
+
+    /**
+     * État d’une reconstruction.
+     *
+     * @param state {@code RUNNING}, {@code COMPLETED} ou {@code FAILED}
+     * @param eventsRead événements lus dans l’event log
+     * @param aggregatesProjected agrégats projetés avec succès
+     * @param aggregatesFailed agrégats dont la projection a échoué
+     * @param viewsMerged vues écrites dans {@code product_view} lors de la bascule
+     * @param startedAt début de la reconstruction
+     * @param finishedAt fin de la reconstruction, {@code null} si en cours
+     * @param error cause de l’échec, {@code null} sinon
+     */
+    public record Progress(
+            String state,
+            long eventsRead,
+            long aggregatesProjected,
+            long aggregatesFailed,
+            long viewsMerged,
+            Instant startedAt,
+            Instant finishedAt,
+            String error) {
+    }
+
+    private final DataSource dataSource;
+    private final ProductEventJpaMapper eventMapper;
+    private final ProductViewProjector projector;
+    private final ProductViewJpaMapper viewMapper;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Progress> progress = new AtomicReference<>();
+    private final AtomicLong eventsRead = new AtomicLong();
+    private final AtomicLong aggregatesProjected = new AtomicLong();
+    private final AtomicLong aggregatesFailed = new AtomicLong();
+
+    private volatile Thread runner;
+
+    @Inject
+    public ProductViewRebuilder(
+            DataSource dataSource,
+            ProductEventJpaMapper eventMapper,
+            ProductViewProjector projector,
+            ProductViewJpaMapper viewMapper,
+            ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.eventMapper = eventMapper;
+        this.projector = projector;
+        this.viewMapper = viewMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        final Thread current = runner;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Démarre une reconstruction en arrière-plan.
+     *
+     * @return l’état initial, ou vide si une reconstruction est déjà en cours
+     */
+    public synchronized Optional<Progress> start() {
+        if (runner != null) {
+            return Optional.empty();
+        }
+        eventsRead.set(0);
+        aggregatesProjected.set(0);
+        aggregatesFailed.set(0);
+        final Instant startedAt = Instant.now();
+        progress.set(new Progress("RUNNING", 0, 0, 0, 0, startedAt, null, null));
+        runner = Thread.ofPlatform()
+                .name("product-view-rebuild")
+                .start(() -> run(startedAt));
+        return progress();
+    }
+
+    /**
+     * @return l’état de la reconstruction en cours ou de la dernière terminée, vide si
+     *         aucune n’a été lancée
+     */
+    public Optional<Progress> progress() {
+        final Progress last = progress.get();
+        if (last == null || !"RUNNING".equals(last.state())) {
+            return Optional.ofNullable(last);
+        }
+        return Optional.of(new Progress(last.state(), eventsRead.get(), aggregatesProjected.get(),
+                aggregatesFailed.get(), 0, last.startedAt(), null, null));
+    }
+
+    private void run(Instant startedAt) {
+        final ScheduledExecutorService reporter = Executors
+                .newSingleThreadScheduledExecutor(r -> new Thread(r, "product-view-rebuild-progress"));
+        reporter.scheduleAtFixedRate(() -> logProgress(startedAt), PROGRESS_LOG_INTERVAL.toMillis(),
+                PROGRESS_LOG_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            LOG.infof("Rebuilding product_view from the event log with %d workers", WORKERS);
+            execute(SQL_CREATE_STAGING);
+            streamAndProject();
+            final int merged = merge();
+            progress.set(new Progress("COMPLETED", eventsRead.get(), aggregatesProjected.get(),
+                    aggregatesFailed.get(), merged, startedAt, Instant.now(), null));
+            LOG.infof("product_view rebuilt in %s: %d events, %d aggregates, %d failed, %d views merged",
+                    Duration.between(startedAt, Instant.now()), eventsRead.get(), aggregatesProjected.get(),
+                    aggregatesFailed.get(), merged);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LOG.error("product_view rebuild failed", e);
+            progress.set(new Progress("FAILED", eventsRead.get(), aggregatesProjected.get(),
+                    aggregatesFailed.get(), 0, startedAt, Instant.now(), String.valueOf(e.getMessage())));
+        } finally {
+            reporter.shutdownNow();
+            try {
+                execute(SQL_DROP_STAGING);
+            } catch (SQLException e) {
+                LOG.warnf("Failed to drop %s: %s", STAGING_TABLE, e.getMessage());
+            }
+            synchronized (this) {
+                runner = null;
+            }
+        }
+    }
+
+    /**
+     * Parcourt l’event log et répartit les agrégats entre les shards, puis attend la fin
+     * de leurs écritures. L’échec d’un shard interrompt la lecture et les autres shards.
+     */
+    private void streamAndProject() throws Exception {
+        final List<BlockingQueue<List<EventLogRecord>>> shards = new ArrayList<>(WORKERS);
+        final ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        final List<Future<?>> running = new ArrayList<>(WORKERS);
+        try {
+            for (int i = 0; i < WORKERS; i++) {
+                final BlockingQueue<List<EventLogRecord>> queue = new ArrayBlockingQueue<>(SHARD_QUEUE_CAPACITY);
+                shards.add(queue);
+                running.add(workers.submit(() -> {
+                    projectShard(queue);
+                    return null;
+                }));
+            }
+            try (Connection connection = dataSource.getConnection()) {
+                // Le curseur serveur n’est utilisé par le pilote qu’hors auto-commit
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(SQL_STREAM_EVENTS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(FETCH_SIZE);
+                    statement.setString(1, PRODUCT_AGGREGATE_TYPE);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        List<EventLogRecord> aggregate = new ArrayList<>();
+                        while (rs.next()) {
+                            final EventLogRecord record = toRecord(rs);
+                            if (!aggregate.isEmpty() && !aggregate.get(0).aggregateId().equals(record.aggregateId())) {
+                                handOff(shardOf(shards, aggregate), aggregate, running);
+                                aggregate = new ArrayList<>();
+                            }
+                            aggregate.add(record);
+                            eventsRead.incrementAndGet();
+                        }
+                        if (!aggregate.isEmpty()) {
+                            handOff(shardOf(shards, aggregate), aggregate, running);
+                        }
+                    }
+                }
+                connection.commit();
+            }
+            for (BlockingQueue<List<EventLogRecord>> queue : shards) {
+                handOff(queue, END_OF_STREAM, running);
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Confie un agrégat à la file d’un shard. Tant que la file est pleine, l’état des
+     * shards est vérifié toutes les {@code SHARD_OFFER_TIMEOUT} : un shard arrêté (échec
+     * d’écriture, connexion perdue) ne vide plus sa file et interrompt la lecture au lieu
+     * de la bloquer indéfiniment.
+     *
+     * @throws ExecutionException si un shard s’est arrêté en échec
+     */
+    private static void handOff(BlockingQueue<List<EventLogRecord>> queue, List<EventLogRecord> aggregate,
+            List<Future<?>> running) throws InterruptedException, ExecutionException {
+        while (!queue.offer(aggregate, SHARD_OFFER_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            for (Future<?> worker : running) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("Rebuild shard stopped before the end of the event log");
+                }
+            }
+        }
+    }
+
+    private static BlockingQueue<List<EventLogRecord>> shardOf(List<BlockingQueue<List<EventLogRecord>>> shards,
+            List<EventLogRecord> aggregate) {
+        return shards.get(Math.floorMod(aggregate.get(0).aggregateId().hashCode(), shards.size()));
+    }
+
+    /**
+     * Projette les agrégats d’un shard et écrit les vues par lots {@code COPY}, sur une
+     * connexion propre au shard.
+     */
+    private void projectShard(BlockingQueue<List<EventLogRecord>> queue) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            final StringBuilder rows = new StringBuilder();
+            final StringBuilder eventRows = new StringBuilder();
+            int pending = 0;
+            while (true) {
+                final List<EventLogRecord> aggregate = queue.take();
+                if (aggregate == END_OF_STREAM) {
+                    break;
+                }
+                final Optional<ProductView> view = project(aggregate);
+                if (view.isEmpty()) {
+                    continue;
+                }
+                appendCsvRow(rows, viewMapper.toEntity(view.get(), objectMapper));
+                for (ProductViewEvent event : view.get().getEvents()) {
+                    appendCsvEventRow(eventRows, view.get().getId().value(), event);
+                }
+                aggregatesProjected.incrementAndGet();
+                if (++pending >= COPY_BATCH_ROWS) {
+                    copy(pgConnection, SQL_COPY, rows);
+                    copy(pgConnection, SQL_COPY_EVENTS, eventRows);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                copy(pgConnection, SQL_COPY, rows);
+                copy(pgConnection, SQL_COPY_EVENTS, eventRows);
+            }
+        }
+    }
+
+    private Optional<ProductView> project(List<EventLogRecord> aggregate) {
+        final UUID aggregateId = aggregate.get(0).aggregateId();
+        try {
+            final List<ProductEventV1Envelope<?>> events = aggregate.stream()
+                    .<ProductEventV1Envelope<?>>map(eventMapper::toProductEventV1)
+                    .toList();
+            final ProjectionResult<ProductView> result = projector.projectAll(Optional.empty(), events);
+            if (result.isSuccess()) {
+                return Optional.of(result.getProjection());
+            }
+            if (result.isFailure()) {
+                aggregatesFailed.incrementAndGet();
+                LOG.warnf("Rebuild projection failed for aggregateId=%s: %s", aggregateId, result.getError());
+            }
+        } catch (RuntimeException e) {
+            aggregatesFailed.incrementAndGet();
+            LOG.warnf("Rebuild projection failed for aggregateId=%s: %s", aggregateId, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    private static void copy(PGConnection connection, String sql, StringBuilder rows)
+            throws SQLException, IOException {
+        connection.getCopyAPI().copyIn(sql, new StringReader(rows.toString()));
+        rows.setLength(0);
+    }
+
+    private void appendCsvRow(StringBuilder out, ProductViewEntity entity) throws IOException {
+        out.append(entity.getId()).append(',')
+                .append(entity.getVersion()).append(',');
+        appendCsvField(out, entity.getSkuId());
+        out.append(',');
+        appendCsvField(out, entity.getName());
+        out.append(',');
+        appendCsvField(out, entity.getDescription());
+        out.append(',')
+                .append(entity.getStatus().name()).append(',');
+        appendCsvField(out, objectMapper.writeValueAsString(entity.getCatalogs()));
+        out.append(',')
+                .append(entity.getCreatedAt()).append(',')
+                .append(entity.getUpdatedAt()).append('\n');
+    }
+
+    private void appendCsvEventRow(StringBuilder out, UUID productId, ProductViewEvent event) {
+        out.append(productId).append(',')
+                .append(event.getSequence()).append(',')
+                .append(event.getType().name()).append(',')
+                .append(event.getTimestamp()).append(',');
+        appendCsvField(out, viewMapper.productViewEventPayloadToJson(event, objectMapper));
+        out.append('\n');
+    }
+
+    private static void appendCsvField(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private EventLogRecord toRecord(ResultSet rs) throws SQLException, IOException {
+        final short codec = rs.getShort("payload_codec");
+        final JsonNode payload = codec == EventPayloadCodecs.JSON.id()
+                ? objectMapper.readTree(rs.getString("payload"))
+                : EventPayloadCodecs.byId(codec).decode(rs.getBytes("payload_bin"));
+        return new EventLogRecord(
+                rs.getLong("id"),
+                rs.getString("aggregate_type"),
+                rs.getObject("aggregate_id", UUID.class),
+                rs.getLong("aggregate_version"),
+                rs.getString("event_type"),
+                rs.getInt("event_version"),
+                payload,
+                rs.getTimestamp("occurred_at").toInstant());
+    }
+
+    private int merge() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                final int merged = statement.executeUpdate(SQL_MERGE);
+                statement.executeUpdate(SQL_MERGE_EVENTS);
+                connection.commit();
+                return merged;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.execute(sql);
+        }
+    }
+
+    private void logProgress(Instant startedAt) {
+        final long seconds = Math.max(1, Duration.between(startedAt, Instant.now()).toSeconds());
+        LOG.infof("product_view rebuild: %d events read (%d/s), %d aggregates projected, %d failed",
+                eventsRead.get(), eventsRead.get() / seconds, aggregatesProjected.get(), aggregatesFailed.get());
+    }
+}
@@ -1,7 +1,6 @@
 package org.ormi.priv.tfa.orderflow.productregistry.read.projection;
 
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -38,7 +37,8 @@ import jakarta.enterprise.context.ApplicationScoped;
  *   <li>Application des mises à jour de nom et de description uniquement si le produit est actif.</li>
  *   <li>Retrait du produit en changeant le statut et en ajoutant un événement.</li>
  *   <li>Gestion des versions pour ignorer les événements obsolètes (no-op).</li>
- *   <li>Fusion et tri chronologique des événements pour conserver l'historique complet.</li>
+ *   <li>Ajout de l'événement projeté à ceux portés par la vue, pour ajout à l'historique
+ *       lors de la sauvegarde.</li>
  * </ul>
  * </p>
  *
@@ -97,7 +97,7 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
                 .with(current.get())
                 .version(ev.sequence())
                 .status(ProductLifecycle.RETIRED)
-                .events(mergeEvents(current.get().getEvents(),
+                .events(appendEvent(current.get().getEvents(),
                         new ProductViewEvent(
                                 ProductEventType.PRODUCT_RETIRED,
                                 ev.timestamp(),
@@ -119,7 +119,7 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
                 .with(current.get())
                 .version(ev.sequence())
                 .name(ev.event().payload().newName())
-                .events(mergeEvents(current.get().getEvents(),
+                .events(appendEvent(current.get().getEvents(),
                         new ProductViewEvent(
                                 ProductEventType.PRODUCT_NAME_UPDATED,
                                 ev.timestamp(),
@@ -141,7 +141,7 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
                 .with(current.get())
                 .version(ev.sequence())
                 .description(ev.event().payload().newDescription())
-                .events(mergeEvents(current.get().getEvents(),
+                .events(appendEvent(current.get().getEvents(),
                         new ProductViewEvent(
                                 ProductEventType.PRODUCT_DESCRIPTION_UPDATED,
                                 ev.timestamp(),
@@ -151,11 +151,16 @@ public class ProductViewProjector implements Projector<ProductView, ProductEvent
         return ProjectionResult.projected(newView);
     }
 
-    private static List<ProductViewEvent> mergeEvents(List<ProductViewEvent> existingEvents,
+    /**
+     * Ajoute un événement à ceux portés par la vue.
+     * <p>
+     * Une vue lue pour projection ne porte que les événements projetés depuis sa lecture
+     * (l’historique complet est stocké à part) : la liste reste courte quel que soit l’âge
+     * du produit. Les contrôles de séquence garantissent l’ordre croissant sans tri.
+     * </p>
+     */
+    private static List<ProductViewEvent> appendEvent(List<ProductViewEvent> pendingEvents,
             ProductViewEvent newEvent) {
-        return Stream.concat(existingEvents.stream(),
-                Stream.of(newEvent))
-                .sorted(Comparator.comparingLong(ProductViewEvent::getSequence))
-                .toList();
+        return Stream.concat(pendingEvents.stream(), Stream.of(newEvent)).toList();
     }
 }
@@ -0,0 +1,232 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Ordonnanceur de tâches différées à base de roues temporelles hiérarchiques.
+ *
+ * <p>
+ * Chaque niveau est une roue de {@code wheelSize} cases ; une case du niveau {@code n}
+ * couvre {@code tick * wheelSize^n}. Une tâche est placée dans la roue la plus fine
+ * capable de contenir son échéance, puis redescend d’un niveau à chaque fois que sa
+ * case est atteinte, jusqu’à être exécutée au plus un {@code tick} après son échéance.
+ * L’ajout et l’expiration sont en temps constant, quel que soit le nombre de tâches
+ * en attente.
+ * </p>
+ *
+ * <p>
+ * Un thread dédié fait avancer l’horloge à chaque {@code tick} ; les tâches échues sont
+ * exécutées sur des threads virtuels afin de ne jamais retarder la roue.
+ * </p>
+ *
+ * <p>
+ * Exemple d’utilisation :
+ * <pre>{@code
+ * HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("retry", Duration.ofMillis(100), 64);
+ * wheel.schedule(Duration.ofSeconds(30), () -> poller.wakeUp());
+ * }</pre>
+ * </p>
+ */
+public final class HierarchicalTimingWheel implements AutoCloseable {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final LongSupplier clock;
+    private final Level root;
+    private final Executor runner;
+    private final Thread ticker;
+
+    private volatile boolean running = true;
+    private int pending;
+
+    /**
+     * Crée et démarre une roue temporelle.
+     *
+     * @param name préfixe du nom des threads
+     * @param tick précision de la roue
+     * @param wheelSize nombre de cases par niveau
+     */
+    public HierarchicalTimingWheel(String name, Duration tick, int wheelSize) {
+        this(tick, wheelSize, System::currentTimeMillis, name);
+    }
+
+    /**
+     * Crée une roue sans thread d’horloge, avancée par {@link #advance()} ; les tâches échues
+     * sont exécutées sur le thread appelant.
+     *
+     * @param tick précision de la roue
+     * @param wheelSize nombre de cases par niveau
+     * @param clock horloge en millisecondes
+     */
+    HierarchicalTimingWheel(Duration tick, int wheelSize, LongSupplier clock) {
+        this(tick, wheelSize, clock, null);
+    }
+
+    private HierarchicalTimingWheel(Duration tick, int wheelSize, LongSupplier clock, String name) {
+        if (tick.toMillis() <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tick must be at least 1ms and wheelSize greater than 1");
+        }
+        this.tickMs = tick.toMillis();
+        this.wheelSize = wheelSize;
+        this.clock = clock;
+        this.root = new Level(tickMs, clock.getAsLong());
+        if (name == null) {
+            this.runner = Runnable::run;
+            this.ticker = null;
+        } else {
+            this.runner = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+            this.ticker = Thread.ofPlatform()
+                    .name(name + "-ticker")
+                    .daemon()
+                    .start(this::tick);
+        }
+    }
+
+    /**
+     * Planifie l’exécution d’une tâche après un délai.
+     *
+     * @param delay délai avant exécution ; un délai nul ou négatif exécute la tâche immédiatement
+     * @param task tâche à exécuter
+     */
+    public void schedule(Duration delay, Runnable task) {
+        final Timer timer = new Timer(clock.getAsLong() + delay.toMillis(), task);
+        synchronized (this) {
+            if (delay.toMillis() > 0 && root.add(timer)) {
+                pending++;
+                return;
+            }
+        }
+        runner.execute(task);
+    }
+
+    /**
+     * @return le nombre de tâches en attente d’échéance
+     */
+    public synchronized int pending() {
+        return pending;
+    }
+
+    /**
+     * Arrête la roue ; les tâches en attente sont abandonnées.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+        if (runner instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Avance la roue jusqu’à l’heure courante et exécute les tâches échues.
+     */
+    void advance() {
+        final List<Runnable> due = new ArrayList<>();
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            root.advance(clock.getAsLong(), due);
+            pending -= due.size();
+        }
+        due.forEach(runner::execute);
+    }
+
+    private void tick() {
+        while (running) {
+            try {
+                Thread.sleep(tickMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    /** Tâche planifiée et son échéance absolue */
+    private record Timer(long expiration, Runnable task) {
+    }
+
+    /** Un niveau de la roue ; le niveau supérieur est créé à la demande */
+    private final class Level {
+        private final long levelTickMs;
+        private final long interval;
+        private final List<ArrayDeque<Timer>> buckets;
+        private long currentTime;
+        private Level overflow;
+
+        private Level(long levelTickMs, long startMs) {
+            this.levelTickMs = levelTickMs;
+            this.interval = levelTickMs * wheelSize;
+            this.currentTime = startMs - (startMs % levelTickMs);
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayDeque<>());
+            }
+        }
+
+        /**
+         * Place une tâche dans ce niveau ou un niveau supérieur.
+         * <p>
+         * Au niveau le plus fin, la case est arrondie à l’échéance supérieure : une tâche
+         * n’est jamais exécutée avant son échéance. Aux niveaux supérieurs, la case est
+         * arrondie à l’échéance inférieure afin que la tâche redescende à temps.
+         * </p>
+         *
+         * @return {@code false} si la tâche est déjà échue et doit être exécutée
+         */
+        private boolean add(Timer timer) {
+            if (this == root) {
+                final long slot = Math.ceilDiv(timer.expiration(), levelTickMs);
+                if (slot * levelTickMs <= currentTime) {
+                    return false;
+                }
+                if (slot * levelTickMs <= currentTime + interval) {
+                    buckets.get((int) (slot % wheelSize)).add(timer);
+                    return true;
+                }
+            } else {
+                final long slot = Math.floorDiv(timer.expiration(), levelTickMs);
+                if (slot * levelTickMs < currentTime + interval) {
+                    buckets.get((int) (slot % wheelSize)).add(timer);
+                    return true;
+                }
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, currentTime);
+            }
+            return overflow.add(timer);
+        }
+
+        /**
+         * Avance l’horloge jusqu’à {@code nowMs} en vidant les cases atteintes : les tâches
+         * échues sont collectées, les autres redescendent d’un niveau.
+         */
+        private void advance(long nowMs, List<Runnable> due) {
+            while (currentTime + levelTickMs <= nowMs) {
+                currentTime += levelTickMs;
+                final ArrayDeque<Timer> bucket = buckets.get((int) ((currentTime / levelTickMs) % wheelSize));
+                final List<Timer> timers = new ArrayList<>(bucket);
+                bucket.clear();
+                for (Timer timer : timers) {
+                    if (!root.add(timer)) {
+                        due.add(timer.task());
+                    }
+                }
+            }
+            if (overflow != null) {
+                overflow.advance(nowMs, due);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Exécuteur garantissant un traitement séquentiel par clé et concurrent entre clés.
+ *
+ * <p>
+ * Les tâches soumises pour une même clé (typiquement un {@code aggregateId}) s’exécutent
+ * strictement dans leur ordre de soumission, l’une après l’autre. Les tâches de clés
+ * différentes s’exécutent indépendamment, chacune sur son propre thread virtuel : une
+ * clé lente ne retarde que ses propres tâches, sans blocage en tête de file pour les
+ * autres clés.
+ * </p>
+ *
+ * <p>
+ * Fonctionnement :
+ * <ul>
+ *   <li>Pour chaque clé active, la dernière tâche soumise (la « queue » de la chaîne) est
+ *       conservée ; une nouvelle tâche est chaînée derrière elle.</li>
+ *   <li>La chaîne d’une clé est retirée dès que sa dernière tâche se termine.</li>
+ *   <li>Un sémaphore borne le nombre de tâches en attente ou en cours : au-delà,
+ *       {@link #submit(Object, Callable)} bloque l’appelant (contre-pression).</li>
+ *   <li>L’échec d’une tâche n’interrompt pas la chaîne : la tâche suivante de la même
+ *       clé s’exécute normalement.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Exemple d’utilisation :
+ * <pre>{@code
+ * KeyedSequentialExecutor<UUID> executor = new KeyedSequentialExecutor<>("projection", 64);
+ * CompletableFuture<Integer> done = executor.submit(evt.aggregateId(), () -> project(evt));
+ * }</pre>
+ * </p>
+ *
+ * @param <K> type de la clé d’ordonnancement
+ */
+public final class KeyedSequentialExecutor<K> implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxPending;
+    private final ConcurrentHashMap<K, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * Crée un exécuteur à threads virtuels.
+     *
+     * @param name préfixe du nom des threads virtuels
+     * @param maxPending nombre maximal de tâches en attente ou en cours, toutes clés confondues
+     */
+    public KeyedSequentialExecutor(String name, int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("maxPending must be positive");
+        }
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.permits = new Semaphore(maxPending);
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Soumet une tâche à exécuter après toutes les tâches déjà soumises pour la même clé.
+     *
+     * @param key clé d’ordonnancement
+     * @param task tâche à exécuter
+     * @param <T> type du résultat
+     * @return future complétée avec le résultat de la tâche, ou en erreur si elle échoue
+     * @throws InterruptedException si l’appelant est interrompu en attendant une place
+     */
+    public <T> CompletableFuture<T> submit(K key, Callable<T> task) throws InterruptedException {
+        permits.acquire();
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<T>[] submitted = new CompletableFuture[1];
+        try {
+            tails.compute(key, (k, tail) -> {
+                final CompletableFuture<?> previous = tail == null ? CompletableFuture.completedFuture(null) : tail;
+                submitted[0] = previous
+                        .handle((result, error) -> null)
+                        .thenApplyAsync(ignored -> call(task), executor);
+                return submitted[0];
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        final CompletableFuture<T> next = submitted[0];
+        next.whenComplete((result, error) -> {
+            tails.remove(key, next);
+            permits.release();
+        });
+        return next;
+    }
+
+    /**
+     * @return le nombre de tâches en attente ou en cours
+     */
+    public int pendingTasks() {
+        return maxPending - permits.availablePermits();
+    }
+
+    /**
+     * @return le nombre de clés ayant au moins une tâche en attente ou en cours
+     */
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    /**
+     * Arrête l’exécuteur et interrompt les tâches en cours.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -1,6 +1,15 @@
 package org.ormi.priv.tfa.orderflow.cqrs;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
@@ -46,28 +55,41 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
     /**
      * Projects a list of events onto the current state.
      * 
+     * <p>
+     * Events are folded in iteration order. Events whose sequence is lower than or
+     * equal to the last applied sequence (initially {@code initialVersion}) are
+     * skipped, as are events for which {@link #project} returns a no-op. The fold
+     * stops at the first failure or pending result: later events cannot be applied
+     * past an event that was not.
+     * </p>
+     * 
      * @param current the current state
      * @param events  the events to project
      * @param initialVersion the initial version
-     * @return the projected state
+     * @return the projected state if at least one event was applied, a no-op if
+     *         none was, or the first failure or pending result
      */
     default ProjectionResult<S> projectAll(Optional<S> current, Iterable<E> events,
             Optional<Long> initialVersion) {
-        Acc<S> init = new Acc<>(ProjectionResult.projected(current.orElse(null)),
+        Acc<S> init = new Acc<>(ProjectionResult.noOp("No event applied"), current.orElse(null),
                 initialVersion.orElse(0L));
 
         return StreamSupport.stream(events.spliterator(), false)
                 .reduce(
                         init,
                         (acc, ev) -> {
-                            if (acc.result().isFailure())
+                            if (acc.result().isFailure() || acc.result().isPending())
                                 return acc;
                             if (ev.sequence() <= acc.lastSequence())
                                 return acc;
 
-                            ProjectionResult<S> next = acc.result().flatMap(state -> project(Optional.ofNullable(state), ev));
+                            ProjectionResult<S> next = project(Optional.ofNullable(acc.state()), ev);
+                            if (next.isFailure() || next.isPending())
+                                return new Acc<>(next, acc.state(), acc.lastSequence());
+                            if (next.isNoOp())
+                                return new Acc<>(acc.result(), acc.state(), ev.sequence());
 
-                            return new Acc<>(next, ev.sequence());
+                            return new Acc<>(next, next.getProjection(), ev.sequence());
                         },
                         (a1, a2) -> {
                             throw new UnsupportedOperationException(
@@ -76,10 +98,99 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
                 .result();
     }
 
+    /**
+     * Projects a mixed batch of events on the common fork-join pool.
+     *
+     * @param events the events to project, of any number of aggregates
+     * @param states the current state and version of an aggregate, by aggregate id
+     * @return the projection result of each aggregate, by aggregate id
+     * @see #projectBatch(Iterable, Function, ForkJoinPool)
+     */
+    default Map<UUID, ProjectionResult<S>> projectBatch(Iterable<E> events,
+            Function<UUID, AggregateState<S>> states) {
+        return projectBatch(events, states, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Projects a mixed batch of events, one aggregate per fork-join task.
+     *
+     * <p>
+     * Events are grouped by aggregate id and each group is sorted by sequence (stable,
+     * so iteration order is kept for equal sequences). Each group is then folded with
+     * {@link #projectAll(Optional, Iterable, Long)} from the state and version returned
+     * by {@code states}, as a separate task of {@code pool}: events of one aggregate are
+     * applied sequentially, distinct aggregates in parallel. {@link #project} must
+     * therefore be safe to call concurrently for distinct aggregates.
+     * </p>
+     *
+     * <p>
+     * {@code states} is called on the calling thread, once per aggregate, before any
+     * task is submitted, so it may use thread-bound resources (e.g. a persistence
+     * context). It must return {@link AggregateState#empty()} for an aggregate without
+     * state. If projecting an aggregate throws, the exception is rethrown once every
+     * task has completed.
+     * </p>
+     *
+     * @param events the events to project, of any number of aggregates
+     * @param states the current state and version of an aggregate, by aggregate id
+     * @param pool   the pool running the projections
+     * @return the projection result of each aggregate, by aggregate id, in order of
+     *         first appearance in {@code events}
+     */
+    default Map<UUID, ProjectionResult<S>> projectBatch(Iterable<E> events,
+            Function<UUID, AggregateState<S>> states, ForkJoinPool pool) {
+        final Map<UUID, List<E>> groups = new LinkedHashMap<>();
+        for (E ev : events) {
+            groups.computeIfAbsent(ev.aggregateId(), id -> new ArrayList<>()).add(ev);
+        }
+        final Map<UUID, ForkJoinTask<ProjectionResult<S>>> tasks = new LinkedHashMap<>();
+        groups.forEach((id, group) -> {
+            group.sort(Comparator.comparingLong(EventEnvelope::sequence));
+            final AggregateState<S> current = Objects.requireNonNull(states.apply(id),
+                    () -> "No state for aggregate " + id);
+            tasks.put(id, pool.submit(() -> projectAll(current.state(), group, current.version())));
+        });
+        final Map<UUID, ProjectionResult<S>> results = new LinkedHashMap<>();
+        RuntimeException error = null;
+        for (Map.Entry<UUID, ForkJoinTask<ProjectionResult<S>>> task : tasks.entrySet()) {
+            try {
+                results.put(task.getKey(), task.getValue().join());
+            } catch (RuntimeException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return results;
+    }
+
+    /**
+     * Current state of an aggregate and the sequence of the last event applied to it.
+     *
+     * @param state   the current state, empty if the aggregate has none
+     * @param version the sequence of the last applied event, {@code 0} if none
+     * @param <S> the type of the projected state
+     */
+    record AggregateState<S>(Optional<S> state, long version) {
+
+        /**
+         * @param <S> the type of the projected state
+         * @return the state of an aggregate without any applied event
+         */
+        public static <S> AggregateState<S> empty() {
+            return new AggregateState<>(Optional.empty(), 0L);
+        }
+    }
+
     /**
      * Accumulator for projection results.
      */
-    record Acc<S>(ProjectionResult<S> result, long lastSequence) {
+    record Acc<S>(ProjectionResult<S> result, S state, long lastSequence) {
     }
 
     /**
@@ -102,17 +213,24 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
          * The reason why the projection was a no-op, if any.
          */
         private final String noopReason;
+        /**
+         * The reason why the event is held for later projection, if any.
+         */
+        private final String pendingReason;
 
         /**
          * Private constructor for creating a projection result.
          *
          * @param projectedState the projected state
          * @param err            the error message, if any
+         * @param noopReason     the reason why the projection was a no-op, if any
+         * @param pendingReason  the reason why the event is held, if any
          */
-        private ProjectionResult(S projectedState, String err, String noopReason) {
+        private ProjectionResult(S projectedState, String err, String noopReason, String pendingReason) {
             this.projectedState = projectedState;
             this.err = err;
             this.noopReason = noopReason;
+            this.pendingReason = pendingReason;
         }
 
         /**
@@ -123,7 +241,7 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
          * @return a successful projection result
          */
         public static <S> ProjectionResult<S> projected(S projectedState) {
-            return new ProjectionResult<>(projectedState, null, null);
+            return new ProjectionResult<>(projectedState, null, null, null);
         }
 
         /**
@@ -134,7 +252,7 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
          * @return a failed projection result
          */
         public static <S> ProjectionResult<S> failed(String err) {
-            return new ProjectionResult<>(null, err, null);
+            return new ProjectionResult<>(null, err, null, null);
         }
 
         /**
@@ -145,7 +263,20 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
          * @return a no-op projection result
          */
         public static <S> ProjectionResult<S> noOp(String noopReason) {
-            return new ProjectionResult<>(null, null, noopReason);
+            return new ProjectionResult<>(null, null, noopReason, null);
+        }
+
+        /**
+         * Creates a pending projection result: the event was accepted but cannot be
+         * applied yet (e.g. an earlier event of the aggregate is missing). The event
+         * must be redelivered later; it is neither applied nor failed.
+         *
+         * @param <S> the type of the projected state
+         * @param pendingReason the reason why the event is held
+         * @return a pending projection result
+         */
+        public static <S> ProjectionResult<S> pending(String pendingReason) {
+            return new ProjectionResult<>(null, null, null, pendingReason);
         }
 
         /**
@@ -175,6 +306,15 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
             return noopReason;
         }
 
+        /**
+         * Gets the reason why the event is held for later projection, if any.
+         *
+         * @return the reason why the event is held, if any
+         */
+        public String getPendingReason() {
+            return pendingReason;
+        }
+
         /**
          * Checks if the projection was successful.
          *
@@ -204,6 +344,17 @@ public interface Projector<S, E extends EventEnvelope<? extends DomainEvent>> {
             return noopReason != null && projectedState == null && err == null;
         }
 
+        /**
+         * Checks if the event is held for later projection.
+         *
+         * Means the event was neither applied nor rejected and must be redelivered.
+         *
+         * @return true if the projection is pending, false otherwise
+         */
+        public boolean isPending() {
+            return pendingReason != null && projectedState == null && err == null;
+        }
+
         /**
          * Maps the projected state to a new value.
          *
@@ -0,0 +1,48 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Format de stockage du payload d’un événement dans l’event log.
+ *
+ * <p>
+ * Chaque ligne de {@code eventing.event_log} porte l’identifiant du codec ayant encodé son
+ * payload ({@code payload_codec}) : changer de codec d’écriture n’impose aucune migration,
+ * les lignes existantes restant décodées par leur codec d’origine. Le codec
+ * {@link EventPayloadCodecs#JSON} stocke le payload dans la colonne {@code jsonb}
+ * {@code payload} ; les codecs binaires utilisent la colonne {@code bytea}
+ * {@code payload_bin}.
+ * </p>
+ *
+ * <p>
+ * Les implémentations doivent être sans état et thread-safe.
+ * </p>
+ */
+public interface EventPayloadCodec {
+
+    /**
+     * @return identifiant stocké dans {@code payload_codec}, unique et définitif
+     */
+    short id();
+
+    /**
+     * @return nom du codec, utilisé par la configuration ({@code orderflow.event-log.payload-codec})
+     */
+    String name();
+
+    /**
+     * Encode un payload.
+     *
+     * @param payload payload de l’événement
+     * @return représentation encodée
+     */
+    byte[] encode(JsonNode payload);
+
+    /**
+     * Décode un payload.
+     *
+     * @param bytes représentation encodée par {@link #encode(JsonNode)}
+     * @return payload de l’événement
+     */
+    JsonNode decode(byte[] bytes);
+}
@@ -0,0 +1,61 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.codec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Registre des codecs de payload connus de l’event log.
+ *
+ * <p>
+ * Un nouveau codec s’ajoute à {@link #ALL} avec un identifiant jamais utilisé ; un codec
+ * retiré de l’écriture doit rester enregistré tant que des lignes l’utilisent.
+ * </p>
+ */
+public final class EventPayloadCodecs {
+
+    /** Codec JSON, stocké en {@code jsonb} (par défaut) */
+    public static final EventPayloadCodec JSON = new JsonEventPayloadCodec();
+    /** Codec binaire Smile, stocké en {@code bytea} */
+    public static final EventPayloadCodec SMILE = new SmileEventPayloadCodec();
+
+    /** Clé de configuration du codec utilisé à l’écriture */
+    public static final String CONFIG_KEY = "orderflow.event-log.payload-codec";
+
+    private static final List<EventPayloadCodec> ALL = List.of(JSON, SMILE);
+    private static final Map<Short, EventPayloadCodec> BY_ID = ALL.stream()
+            .collect(Collectors.toUnmodifiableMap(EventPayloadCodec::id, Function.identity()));
+    private static final Map<String, EventPayloadCodec> BY_NAME = ALL.stream()
+            .collect(Collectors.toUnmodifiableMap(EventPayloadCodec::name, Function.identity()));
+
+    private EventPayloadCodecs() {
+    }
+
+    /**
+     * @param id identifiant stocké dans {@code payload_codec}
+     * @return le codec correspondant
+     * @throws IllegalArgumentException si l’identifiant est inconnu
+     */
+    public static EventPayloadCodec byId(short id) {
+        final EventPayloadCodec codec = BY_ID.get(id);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown event payload codec id: " + id);
+        }
+        return codec;
+    }
+
+    /**
+     * @param name nom configuré du codec
+     * @return le codec correspondant
+     * @throws IllegalArgumentException si le nom est inconnu
+     */
+    public static EventPayloadCodec byName(String name) {
+        final EventPayloadCodec codec = BY_NAME.get(name.toLowerCase());
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown event payload codec: " + name + ", expected one of "
+                    + BY_NAME.keySet());
+        }
+        return codec;
+    }
+}
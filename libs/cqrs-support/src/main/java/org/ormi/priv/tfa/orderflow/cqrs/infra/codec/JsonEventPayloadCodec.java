@@ -0,0 +1,44 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.codec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Codec JSON texte (UTF-8), format historique de l’event log stocké en {@code jsonb}.
+ */
+final class JsonEventPayloadCodec implements EventPayloadCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public short id() {
+        return 0;
+    }
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public byte[] encode(JsonNode payload) {
+        try {
+            return MAPPER.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unserializable event payload", e);
+        }
+    }
+
+    @Override
+    public JsonNode decode(byte[] bytes) {
+        try {
+            return MAPPER.readTree(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid JSON event payload", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.codec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+
+/**
+ * Codec binaire Smile (JSON binaire de Jackson).
+ *
+ * <p>
+ * Les entiers, longueurs et noms de champs courts sont encodés sur un octet, et le
+ * décodage se fait sans analyse lexicale du texte. L’en-tête Smile de 4 octets est omis :
+ * le format est déjà identifié par {@code payload_codec}.
+ * </p>
+ */
+final class SmileEventPayloadCodec implements EventPayloadCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper(SmileFactory.builder()
+            .disable(SmileGenerator.Feature.WRITE_HEADER)
+            .disable(SmileParser.Feature.REQUIRE_HEADER)
+            .build());
+
+    @Override
+    public short id() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "smile";
+    }
+
+    @Override
+    public byte[] encode(JsonNode payload) {
+        try {
+            return MAPPER.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unserializable event payload", e);
+        }
+    }
+
+    @Override
+    public JsonNode decode(byte[] bytes) {
+        try {
+            return MAPPER.readTree(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid Smile event payload", e);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import java.util.UUID;
 
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodec;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodecs;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -36,9 +38,13 @@ import lombok.Setter;
  * </p>
  *
  * <p>
- * Champs JSON :
+ * Payload :
  * <ul>
  *   <li>{@link #payload} : le contenu complet de l’événement métier sérialisé en JSON</li>
+ *   <li>{@link #payloadBin} : le même contenu encodé par un codec binaire, à la place de
+ *       {@link #payload}</li>
+ *   <li>{@link #payloadCodec} : identifiant du codec utilisé (voir {@link EventPayloadCodecs}) ;
+ *       le payload se lit via {@link #decodePayload()}</li>
  * </ul>
  * </p>
  *
@@ -100,11 +106,40 @@ public class EventLogEntity {
     @Column(name = "occurred_at", nullable = false, updatable = false, columnDefinition = "timestamptz")
     private Instant occurredAt;
 
-    /** Payload JSON sérialisé contenant les données métier de l’événement */
+    /** Payload JSON sérialisé contenant les données métier de l’événement, pour le codec JSON */
     @JdbcTypeCode(SqlTypes.JSON)
-    @Column(name = "payload", nullable = false, updatable = false, columnDefinition = "jsonb")
+    @Column(name = "payload", updatable = false, columnDefinition = "jsonb")
     private JsonNode payload;
 
+    /** Payload encodé par un codec binaire */
+    @Column(name = "payload_bin", updatable = false, columnDefinition = "bytea")
+    private byte[] payloadBin;
+
+    /** Identifiant du codec du payload */
+    @Column(name = "payload_codec", nullable = false, updatable = false, columnDefinition = "smallint")
+    private short payloadCodec;
+
+    /**
+     * Encode le payload avec un codec : un codec binaire remplace {@link #payload} par
+     * {@link #payloadBin}.
+     *
+     * @param codec codec d’écriture
+     */
+    public void encodePayload(EventPayloadCodec codec) {
+        payloadCodec = codec.id();
+        if (codec.id() != EventPayloadCodecs.JSON.id()) {
+            payloadBin = codec.encode(payload);
+            payload = null;
+        }
+    }
+
+    /**
+     * @return le payload, décodé selon {@link #payloadCodec}
+     */
+    public JsonNode decodePayload() {
+        return payloadBin == null ? payload : EventPayloadCodecs.byId(payloadCodec).decode(payloadBin);
+    }
+
     /**
      * TODO: Implémenter les métadonnées additionnelles pour observabilité et scalabilité :
      * <ul>
@@ -0,0 +1,116 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.cqrs.EventEnvelope;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodec;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodecs;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventJournal;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.arc.DefaultBean;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Implémentation JPA de l’{@link EventJournal}.
+ *
+ * <p>
+ * L’événement est converti par le {@link EventLogJpaMapper}, puis écrit par une requête
+ * native unique ({@code appendAndEnqueue.sql}) : un {@code INSERT ... RETURNING} dans
+ * {@code eventing.event_log} alimente l’insertion du message dans {@code eventing.outbox},
+ * et la notification est émise sur la ligne retournée. Les identifiants sont ceux des
+ * valeurs par défaut des colonnes. Le payload est encodé par le codec configuré
+ * ({@code orderflow.event-log.payload-codec}).
+ * </p>
+ */
+@ApplicationScoped
+@DefaultBean
+public class JpaEventJournal implements EventJournal {
+
+    private static final String SQL_APPEND_AND_ENQUEUE = loadSQLQueryFromFile("/db/queries/appendAndEnqueue.sql");
+
+    private final EntityManager entityManager;
+    private final EventLogJpaMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final boolean outboxEnabled;
+    private final EventPayloadCodec payloadCodec;
+
+    @Inject
+    public JpaEventJournal(
+            EntityManager entityManager,
+            EventLogJpaMapper mapper,
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = "orderflow.outbox.enabled", defaultValue = "true") boolean outboxEnabled,
+            @ConfigProperty(name = EventPayloadCodecs.CONFIG_KEY, defaultValue = "json") String payloadCodec) {
+        this.entityManager = entityManager;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.outboxEnabled = outboxEnabled;
+        this.payloadCodec = EventPayloadCodecs.byName(payloadCodec);
+    }
+
+    /**
+     * Écrit l’événement, son message d’outbox et la notification en une seule instruction.
+     *
+     * @param event L’événement métier enveloppé
+     * @return L’entrée de l’event log écrite
+     */
+    @Override
+    @Transactional
+    public EventLogRecord appendAndEnqueue(EventEnvelope<?> event) {
+        final EventLogEntity entity = mapper.toEntity(event, objectMapper);
+        final JsonNode payload = entity.getPayload();
+        entity.encodePayload(payloadCodec);
+        final Number id = (Number) entityManager
+                .createNativeQuery(SQL_APPEND_AND_ENQUEUE)
+                .setParameter("aggregateType", entity.getAggregateType())
+                .setParameter("aggregateId", entity.getAggregateId())
+                .setParameter("aggregateVersion", entity.getAggregateVersion())
+                .setParameter("eventType", entity.getEventType())
+                .setParameter("eventVersion", entity.getEventVersion())
+                .setParameter("occurredAt", entity.getOccurredAt())
+                .setParameter("payload", entity.getPayload() == null ? "" : toJson(entity))
+                .setParameter("payloadBin", entity.getPayloadBin() == null ? new byte[0] : entity.getPayloadBin())
+                .setParameter("payloadCodec", entity.getPayloadCodec())
+                .setParameter("enqueue", outboxEnabled)
+                .setParameter("channel", OutboxRepository.READY_CHANNEL)
+                .getSingleResult();
+        return new EventLogRecord(id.longValue(), entity.getAggregateType(), entity.getAggregateId(),
+                entity.getAggregateVersion(), entity.getEventType(), entity.getEventVersion(), payload,
+                entity.getOccurredAt());
+    }
+
+    private String toJson(EventLogEntity entity) {
+        try {
+            return objectMapper.writeValueAsString(entity.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unserializable payload for event " + entity.getEventType(), e);
+        }
+    }
+
+    /**
+     * Charge une requête SQL depuis un fichier classpath.
+     *
+     * @param classpath Chemin vers le fichier SQL
+     * @return Contenu de la requête SQL
+     */
+    private static String loadSQLQueryFromFile(String classpath) {
+        try (InputStream is = JpaEventJournal.class.getResourceAsStream(classpath)) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,7 +1,21 @@
 package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.ormi.priv.tfa.orderflow.cqrs.EventEnvelope;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodec;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodecs;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogHorizon;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogPosition;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
 import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRepository;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.PositionedEvent;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -9,6 +23,7 @@ import io.quarkus.arc.DefaultBean;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.persistence.Tuple;
 import jakarta.transaction.Transactional;
 
 /**
@@ -25,8 +40,15 @@ import jakarta.transaction.Transactional;
  * <ul>
  *   <li>Supporte la persistance transactionnelle via {@link Transactional}</li>
  *   <li>Utilise l’injection CDI pour le mapper {@link EventLogJpaMapper} et l’ObjectMapper Jackson</li>
+ *   <li>Payload encodé par le codec configuré ({@code orderflow.event-log.payload-codec},
+ *       voir {@link EventPayloadCodecs})</li>
  *   <li>Extends {@link PanacheRepository} pour bénéficier des méthodes utilitaires de Panache</li>
  *   <li>Annoté {@link DefaultBean} pour permettre un remplacement éventuel par une autre implémentation</li>
+ *   <li>Lecture par position des transactions terminées via
+ *       {@link #readCommittedAfter(EventLogPosition, int)}, en requête native</li>
+ *   <li>Mesure de l’horizon de cette lecture via {@link #committedHorizon()}</li>
+ *   <li>Lecture d’une plage de versions d’un agrégat via
+ *       {@link #readAggregateRange(String, UUID, long, long)}, en requête native</li>
  * </ul>
  * </p>
  */
@@ -34,13 +56,24 @@ import jakarta.transaction.Transactional;
 @DefaultBean
 public class JpaEventLogRepository implements PanacheRepository<EventLogEntity>, EventLogRepository {
 
+    private static final String SQL_READ_COMMITTED_AFTER = loadSQLQueryFromFile("/db/queries/readCommittedEventLogAfter.sql");
+    private static final String SQL_READ_AGGREGATE_RANGE = loadSQLQueryFromFile("/db/queries/readEventLogAggregateRange.sql");
+    private static final String SQL_COMMITTED_HORIZON = "SELECT CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text)"
+            + " AS xmin, (SELECT count(*) FROM eventing.event_log e"
+            + " WHERE e.tx_id >= pg_snapshot_xmin(pg_current_snapshot())) AS held_back";
+
     private final EventLogJpaMapper mapper;
     private final ObjectMapper objectMapper;
+    private final EventPayloadCodec payloadCodec;
 
     @Inject
-    public JpaEventLogRepository(EventLogJpaMapper mapper, ObjectMapper objectMapper) {
+    public JpaEventLogRepository(
+            EventLogJpaMapper mapper,
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = EventPayloadCodecs.CONFIG_KEY, defaultValue = "json") String payloadCodec) {
         this.mapper = mapper;
         this.objectMapper = objectMapper;
+        this.payloadCodec = EventPayloadCodecs.byName(payloadCodec);
     }
 
     /**
@@ -57,9 +90,96 @@ public class JpaEventLogRepository implements PanacheRepository<EventLogEntity>,
     @Override
     @Transactional
     public EventLogEntity append(EventEnvelope<?> eventLog) {
-        EventLogEntity entity = mapper.toEntity(eventLog, objectMapper);
+        EventLogEntity entity = toEntity(eventLog);
         persist(entity);
         return entity;
     }
-}
 
+    /**
+     * Lit les événements suivant une position, dans l’ordre global {@code (tx_id, id)}.
+     *
+     * @param after Position du dernier événement traité
+     * @param limit Nombre maximal d’événements
+     * @return Événements positionnés
+     */
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<PositionedEvent> readCommittedAfter(EventLogPosition after, int limit) {
+        final List<Tuple> rows = (List<Tuple>) getEntityManager()
+                .createNativeQuery(SQL_READ_COMMITTED_AFTER, Tuple.class)
+                .setParameter("txId", after.txId())
+                .setParameter("eventId", after.eventId())
+                .setParameter("limit", limit)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new PositionedEvent(
+                        new EventLogPosition(Long.parseLong((String) row.get("tx_id")),
+                                ((Number) row.get("id")).longValue()),
+                        NativeRows.toEventLogRecord(row, "id", objectMapper)))
+                .toList();
+    }
+
+    /**
+     * Mesure l’horizon de lecture en une seule requête ; le décompte des événements masqués
+     * est servi par l’index {@code (tx_id, id)}.
+     *
+     * @return Horizon courant
+     */
+    @Override
+    @Transactional
+    public EventLogHorizon committedHorizon() {
+        final Tuple row = (Tuple) getEntityManager()
+                .createNativeQuery(SQL_COMMITTED_HORIZON, Tuple.class)
+                .getSingleResult();
+        return new EventLogHorizon(Long.parseLong((String) row.get("xmin")),
+                ((Number) row.get("held_back")).longValue());
+    }
+
+    /**
+     * Lit une plage de versions d’un agrégat, via l’index unique
+     * {@code (aggregate_type, aggregate_id, aggregate_version)}.
+     *
+     * @param aggregateType Type de l’agrégat
+     * @param aggregateId Identifiant de l’agrégat
+     * @param fromVersion Première version, incluse
+     * @param toVersion Dernière version, incluse
+     * @return Événements triés par version
+     */
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<EventLogRecord> readAggregateRange(String aggregateType, UUID aggregateId, long fromVersion,
+            long toVersion) {
+        final List<Tuple> rows = (List<Tuple>) getEntityManager()
+                .createNativeQuery(SQL_READ_AGGREGATE_RANGE, Tuple.class)
+                .setParameter("aggregateType", aggregateType)
+                .setParameter("aggregateId", aggregateId)
+                .setParameter("fromVersion", fromVersion)
+                .setParameter("toVersion", toVersion)
+                .getResultList();
+        return rows.stream()
+                .map(row -> NativeRows.toEventLogRecord(row, "id", objectMapper))
+                .toList();
+    }
+
+    private EventLogEntity toEntity(EventEnvelope<?> event) {
+        final EventLogEntity entity = mapper.toEntity(event, objectMapper);
+        entity.encodePayload(payloadCodec);
+        return entity;
+    }
+
+    /**
+     * Charge une requête SQL depuis un fichier classpath.
+     *
+     * @param classpath Chemin vers le fichier SQL
+     * @return Contenu de la requête SQL
+     */
+    private static String loadSQLQueryFromFile(String classpath) {
+        try (InputStream is = JpaEventLogRepository.class.getResourceAsStream(classpath)) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
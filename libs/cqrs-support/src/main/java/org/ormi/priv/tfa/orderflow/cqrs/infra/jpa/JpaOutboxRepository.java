@@ -5,13 +5,24 @@ import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxBacklog;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxMessage;
 import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import io.quarkus.arc.DefaultBean;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.Tuple;
 import jakarta.transaction.Transactional;
 
 /**
@@ -25,10 +36,25 @@ import jakarta.transaction.Transactional;
  * <p>
  * Fonctionnalités :
  * <ul>
- *   <li>Persist les messages à publier via {@link #publish(OutboxEntity)}</li>
+ *   <li>Persist les messages à publier via {@link #publish(OutboxEntity)} et notifie les consommateurs
+ *       sur le canal {@link OutboxRepository#READY_CHANNEL}</li>
  *   <li>Récupère les messages prêts à être traités par {@link #fetchReadyByAggregateTypeOrderByAggregateVersion(String, int, int)}</li>
- *   <li>Supprime un message traité via {@link #delete(OutboxEntity)}</li>
+ *   <li>Réserve les messages prêts par bail via {@link #claimReadyByAggregateType(String, String, int, int, int)},
+ *       avec leur événement source en une seule requête, et prolonge les baux via
+ *       {@link #renewLeases(String, Collection, int)}</li>
+ *   <li>Réserve en une seule requête les messages de plusieurs types d’agrégats, répartis par
+ *       tourniquet pondéré, via {@link #claimReadyByAggregateTypes(Map, String, int, int, int, int, Collection)}</li>
+ *   <li>Marque un message comme traité via {@link #markProcessed(OutboxEntity)} ; les messages traités
+ *       restent dans leur partition jusqu’à la suppression de celle-ci</li>
  *   <li>Marque un message comme échoué et planifie une nouvelle tentative via {@link #markFailed(OutboxEntity, String, int)}</li>
+ *   <li>Abandonne sans nouvel essai les messages qui ne peuvent plus aboutir via
+ *       {@link #markAllExhausted(Map, int)}</li>
+ *   <li>Déplace les messages épuisés vers la dead letter via {@link #moveExhaustedToDeadLetter(int)}, et y
+ *       enregistre les événements abandonnés par les consommateurs de l’event log via
+ *       {@link #deadLetter(long, int, String, String)}</li>
+ *   <li>Mesure le backlog (profondeur, plus ancien message prêt) via {@link #backlog(int)}</li>
+ *   <li>Acquitte ou marque comme échoués des lots de messages via {@link #markAllProcessed(Collection)}
+ *       et {@link #markAllFailed(Map, int)}, en une seule transaction</li>
  *   <li>Chargement dynamique des requêtes SQL natives pour la sélection des messages prêts</li>
  * </ul>
  * </p>
@@ -47,15 +73,57 @@ import jakarta.transaction.Transactional;
 public class JpaOutboxRepository implements PanacheRepository<OutboxEntity>, OutboxRepository {
     private static final int DEFAULT_DELAY_MS = 5000;
     private static final String SQL_FETCH_QUERY = loadSQLQueryFromFile("/db/queries/findReadyByAggregateTypeOrderByAggregateVersion.sql");
+    private static final String SQL_CLAIM_QUERY = loadSQLQueryFromFile("/db/queries/claimReadyByAggregateType.sql");
+    private static final String SQL_CLAIM_TYPES_QUERY = loadSQLQueryFromFile("/db/queries/claimReadyByAggregateTypes.sql");
+    private static final String SQL_DEAD_LETTER_QUERY = loadSQLQueryFromFile("/db/queries/moveExhaustedToDeadLetter.sql");
+    private static final String SQL_DEAD_LETTER_EVENT_QUERY = "INSERT INTO eventing.outbox_dead_letter"
+            + " (event_id, attempts, last_error, consumer)"
+            + " SELECT :eventId, :attempts, :lastError, :consumer"
+            + " WHERE NOT EXISTS (SELECT 1 FROM eventing.outbox_dead_letter"
+            + " WHERE event_id = :eventId AND consumer = :consumer)";
+    private static final String SQL_NOTIFY_QUERY = "SELECT 1 FROM (SELECT pg_notify(:channel, :payload)) n";
+    private static final String SQL_BACKLOG_QUERY = "SELECT count(*) AS depth,"
+            + " min(created_at) FILTER (WHERE next_attempt_at IS NULL OR next_attempt_at <= CURRENT_TIMESTAMP)"
+            + " AS oldest_ready_at"
+            + " FROM eventing.outbox WHERE processed_at IS NULL AND attempts < :maxAttempts";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    @Inject
+    public JpaOutboxRepository(
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = "orderflow.outbox.enabled", defaultValue = "true") boolean enabled) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
 
     /**
-     * Persiste un message dans l’outbox.
+     * Persiste un message dans l’outbox et notifie les consommateurs.
+     *
+     * <p>
+     * PostgreSQL ne délivre la notification qu’au commit de la transaction courante,
+     * et fusionne les notifications identiques émises dans une même transaction :
+     * un consommateur réveillé trouve donc toujours le message déjà visible.
+     * </p>
+     *
+     * <p>
+     * Avec {@code orderflow.outbox.enabled=false}, aucune ligne n’est écrite : seule la
+     * notification est émise, pour réveiller les consommateurs lisant l’event log par position.
+     * </p>
      *
      * @param entity Le message à publier
      */
     @Override
     public void publish(OutboxEntity entity) {
-        persist(entity);
+        if (enabled) {
+            persist(entity);
+        }
+        getEntityManager()
+                .createNativeQuery(SQL_NOTIFY_QUERY)
+                .setParameter("channel", READY_CHANNEL)
+                .setParameter("payload", entity.getSourceEvent().getAggregateType())
+                .getSingleResult();
     }
 
     /**
@@ -79,14 +147,148 @@ public class JpaOutboxRepository implements PanacheRepository<OutboxEntity>, Out
     }
 
     /**
-     * Supprime un message de l’outbox après traitement.
+     * Réserve les messages prêts à être traités pour un type d’agrégat donné.
+     *
+     * <p>
+     * La réservation est une requête unique : la sélection ({@code FOR UPDATE SKIP LOCKED})
+     * et la pose du bail ({@code UPDATE ... RETURNING}) sont atomiques, et un verrou
+     * consultatif transactionnel par agrégat empêche deux instances de se partager
+     * les messages d’un même agrégat. Ce verrou n’est demandé que pour les candidats
+     * retenus après {@code LIMIT}, et non pour chaque ligne parcourue. La même requête joint l’event log et trie le
+     * résultat par agrégat puis par version : aucun chargement supplémentaire par message.
+     * </p>
+     *
+     * @param aggregateType Type d’agrégat
+     * @param owner Identifiant de l’instance consommatrice
+     * @param limit Nombre maximal de messages à réserver
+     * @param maxRetries Nombre maximal de tentatives autorisées
+     * @param leaseMs Durée du bail en millisecondes
+     * @return Liste des messages réservés
+     */
+    @Override
+    public List<OutboxMessage> claimReadyByAggregateType(String aggregateType, String owner, int limit,
+            int maxRetries, int leaseMs) {
+        // Une partition unique couvre tous les agrégats
+        return claimReadyByAggregateType(aggregateType, owner, limit, maxRetries, leaseMs, 1, List.of(0));
+    }
+
+    /**
+     * Réserve les messages prêts à être traités appartenant aux partitions logiques données.
+     *
+     * @param aggregateType Type d’agrégat
+     * @param owner Identifiant de l’instance consommatrice
+     * @param limit Nombre maximal de messages à réserver
+     * @param maxRetries Nombre maximal de tentatives autorisées
+     * @param leaseMs Durée du bail en millisecondes
+     * @param partitionCount Nombre total de partitions logiques
+     * @param partitions Partitions détenues par l’instance
+     * @return Liste des messages réservés
+     */
+    @Transactional
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<OutboxMessage> claimReadyByAggregateType(String aggregateType, String owner, int limit,
+            int maxRetries, int leaseMs, int partitionCount, Collection<Integer> partitions) {
+        if (partitions.isEmpty()) {
+            return List.of();
+        }
+        final List<Tuple> claimed = (List<Tuple>) getEntityManager()
+                .createNativeQuery(SQL_CLAIM_QUERY, Tuple.class)
+                .setParameter("aggregateTypes", aggregateType)
+                .setParameter("owner", owner)
+                .setParameter("maxAttempts", maxRetries)
+                .setParameter("leaseMs", leaseMs)
+                .setParameter("limit", limit)
+                .setParameter("partitionCount", partitionCount)
+                .setParameter("partitions", partitions)
+                .getResultList();
+        return claimed.stream()
+                .map(this::toOutboxMessage)
+                .toList();
+    }
+
+    /**
+     * Réserve les messages prêts de plusieurs types d’agrégats, répartis par tourniquet pondéré.
+     *
+     * @param weightsByAggregateType Poids de chaque type d’agrégat
+     * @param owner Identifiant de l’instance consommatrice
+     * @param limit Nombre maximal de messages à réserver
+     * @param maxRetries Nombre maximal de tentatives autorisées
+     * @param leaseMs Durée du bail en millisecondes
+     * @param partitionCount Nombre total de partitions logiques
+     * @param partitions Partitions détenues par l’instance
+     * @return Liste des messages réservés
+     */
+    @Transactional
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<OutboxMessage> claimReadyByAggregateTypes(Map<String, Integer> weightsByAggregateType, String owner,
+            int limit, int maxRetries, int leaseMs, int partitionCount, Collection<Integer> partitions) {
+        if (weightsByAggregateType.isEmpty() || partitions.isEmpty()) {
+            return List.of();
+        }
+        final String[] aggregateTypes = weightsByAggregateType.keySet().toArray(String[]::new);
+        final Integer[] weights = Arrays.stream(aggregateTypes)
+                .map(weightsByAggregateType::get)
+                .toArray(Integer[]::new);
+        final List<Tuple> claimed = (List<Tuple>) getEntityManager()
+                .createNativeQuery(SQL_CLAIM_TYPES_QUERY, Tuple.class)
+                .setParameter("aggregateTypes", aggregateTypes)
+                .setParameter("weights", weights)
+                .setParameter("owner", owner)
+                .setParameter("maxAttempts", maxRetries)
+                .setParameter("leaseMs", leaseMs)
+                .setParameter("limit", limit)
+                .setParameter("partitionCount", partitionCount)
+                .setParameter("partitions", partitions)
+                .getResultList();
+        return claimed.stream()
+                .map(this::toOutboxMessage)
+                .toList();
+    }
+
+    /**
+     * Convertit une ligne de la requête de réservation en {@link OutboxMessage}.
      *
-     * @param entity Message à supprimer
+     * @param row Ligne contenant les colonnes du message et de son événement
+     * @return Message immuable
+     */
+    private OutboxMessage toOutboxMessage(Tuple row) {
+        return new OutboxMessage(
+                ((Number) row.get("id")).longValue(),
+                row.get("attempts") == null ? 0 : ((Number) row.get("attempts")).intValue(),
+                NativeRows.toInstant(row.get("next_attempt_at")),
+                (String) row.get("last_error"),
+                NativeRows.toEventLogRecord(row, "event_id", objectMapper));
+    }
+
+    /**
+     * Prolonge le bail des messages détenus par une instance.
+     *
+     * @param owner Identifiant de l’instance consommatrice
+     * @param ids Identifiants des messages en cours de traitement
+     * @param leaseMs Durée du bail en millisecondes
+     * @return Nombre de baux prolongés
      */
     @Transactional
     @Override
-    public void delete(OutboxEntity entity) {
-        deleteById(entity.getId());
+    public int renewLeases(String owner, Collection<Long> ids, int leaseMs) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return update("leaseUntil = ?1 WHERE claimedBy = ?2 AND id IN ?3",
+                Instant.now().plusMillis(leaseMs), owner, ids);
+    }
+
+    /**
+     * Marque un message de l’outbox comme traité.
+     *
+     * @param entity Message traité
+     */
+    @Transactional
+    @Override
+    public void markProcessed(OutboxEntity entity) {
+        markAllProcessed(List.of(entity.getId()));
     }
 
     /**
@@ -110,10 +312,131 @@ public class JpaOutboxRepository implements PanacheRepository<OutboxEntity>, Out
     @Transactional
     @Override
     public void markFailed(OutboxEntity entity, String err, int delayMs) {
-        update("lastError = ?1, nextAttemptAt = ?2, attempts = attempts + 1 WHERE id = ?3",
+        update("lastError = ?1, nextAttemptAt = ?2, attempts = attempts + 1, claimedBy = null, leaseUntil = null"
+                + " WHERE id = ?3",
                 err, Instant.now().plusMillis(delayMs), entity.getId());
     }
 
+    /**
+     * Marque un lot de messages comme traités en une seule instruction.
+     *
+     * @param ids Identifiants des messages traités
+     * @return Nombre de messages marqués
+     */
+    @Transactional
+    @Override
+    public long markAllProcessed(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return update("processedAt = ?1 WHERE id IN ?2 AND processedAt IS NULL", Instant.now(), ids);
+    }
+
+    /**
+     * Marque un lot de messages comme échoués et planifie leur prochaine tentative.
+     * Une instruction est émise par message d’erreur distinct.
+     *
+     * @param errorsById Description de l’erreur par identifiant de message
+     * @param delayMs Délai avant la prochaine tentative en millisecondes
+     */
+    @Transactional
+    @Override
+    public void markAllFailed(Map<Long, String> errorsById, int delayMs) {
+        if (errorsById.isEmpty()) {
+            return;
+        }
+        final Instant nextAttemptAt = Instant.now().plusMillis(delayMs);
+        errorsById.entrySet().stream()
+                .collect(Collectors.groupingBy(
+                        e -> String.valueOf(e.getValue()),
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((err, ids) -> update(
+                        "lastError = ?1, nextAttemptAt = ?2, attempts = attempts + 1, claimedBy = null,"
+                                + " leaseUntil = null WHERE id IN ?3",
+                        err, nextAttemptAt, ids));
+    }
+
+    /**
+     * Marque un lot de messages comme ayant épuisé leurs tentatives, en vue de leur
+     * déplacement en dead letter. Une instruction est émise par message d’erreur distinct.
+     *
+     * @param errorsById Description de l’erreur par identifiant de message
+     * @param maxRetries Nombre de tentatives à partir duquel un message est abandonné
+     */
+    @Transactional
+    @Override
+    public void markAllExhausted(Map<Long, String> errorsById, int maxRetries) {
+        if (errorsById.isEmpty()) {
+            return;
+        }
+        errorsById.entrySet().stream()
+                .collect(Collectors.groupingBy(
+                        e -> String.valueOf(e.getValue()),
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((err, ids) -> update(
+                        "lastError = ?1, attempts = ?2, claimedBy = null, leaseUntil = null"
+                                + " WHERE id IN ?3 AND attempts < ?2",
+                        err, maxRetries, ids));
+    }
+
+    /**
+     * Déplace les messages ayant épuisé leurs tentatives vers la dead letter,
+     * en une seule instruction ({@code DELETE ... RETURNING} chaîné à un {@code INSERT}).
+     *
+     * @param maxRetries Nombre de tentatives à partir duquel un message est abandonné
+     * @return Nombre de messages déplacés
+     */
+    @Transactional
+    @Override
+    public int moveExhaustedToDeadLetter(int maxRetries) {
+        return getEntityManager()
+                .createNativeQuery(SQL_DEAD_LETTER_QUERY)
+                .setParameter("maxAttempts", maxRetries)
+                .executeUpdate();
+    }
+
+    /**
+     * Enregistre en dead letter un événement abandonné par un consommateur de l’event log.
+     * L’identifiant est tiré de la séquence de l’outbox et ne peut donc pas entrer en
+     * collision avec celui d’un message déplacé. Un événement déjà enregistré pour ce
+     * consommateur (rejeu après reprise) n’est pas dupliqué.
+     *
+     * @param eventId Identifiant de l’événement dans l’event log
+     * @param attempts Nombre de tentatives effectuées
+     * @param lastError Dernière erreur de projection
+     * @param consumer Consommateur ayant abandonné l’événement
+     */
+    @Transactional
+    @Override
+    public void deadLetter(long eventId, int attempts, String lastError, String consumer) {
+        getEntityManager()
+                .createNativeQuery(SQL_DEAD_LETTER_EVENT_QUERY)
+                .setParameter("eventId", eventId)
+                .setParameter("attempts", attempts)
+                .setParameter("lastError", lastError)
+                .setParameter("consumer", consumer)
+                .executeUpdate();
+    }
+
+    /**
+     * Mesure le backlog de l’outbox en une seule requête, servie par les index
+     * partiels des messages non traités.
+     *
+     * @param maxRetries Nombre de tentatives à partir duquel un message n’est plus compté
+     * @return État du backlog
+     */
+    @Transactional
+    @Override
+    public OutboxBacklog backlog(int maxRetries) {
+        final Tuple row = (Tuple) getEntityManager()
+                .createNativeQuery(SQL_BACKLOG_QUERY, Tuple.class)
+                .setParameter("maxAttempts", maxRetries)
+                .getSingleResult();
+        return new OutboxBacklog(
+                ((Number) row.get("depth")).longValue(),
+                NativeRows.toInstant(row.get("oldest_ready_at")));
+    }
+
     /**
      * Charge une requête SQL depuis un fichier classpath.
      *
@@ -0,0 +1,75 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogPosition;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.ProjectionCheckpointRepository;
+
+import io.quarkus.arc.DefaultBean;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.transaction.Transactional;
+
+/**
+ * Implémentation JPA du {@link ProjectionCheckpointRepository} sur la table
+ * {@code eventing.projection_checkpoint}, en requêtes natives.
+ */
+@ApplicationScoped
+@DefaultBean
+public class JpaProjectionCheckpointRepository implements ProjectionCheckpointRepository {
+
+    private static final String SQL_LOAD = "SELECT last_tx_id::text AS tx_id, last_event_id"
+            + " FROM eventing.projection_checkpoint WHERE projection_name = :projection";
+    private static final String SQL_SAVE = "INSERT INTO eventing.projection_checkpoint"
+            + " (projection_name, last_tx_id, last_event_id, updated_at)"
+            + " VALUES (:projection, CAST(CAST(:txId AS text) AS xid8), :eventId, CURRENT_TIMESTAMP)"
+            + " ON CONFLICT (projection_name) DO UPDATE SET last_tx_id = EXCLUDED.last_tx_id,"
+            + " last_event_id = EXCLUDED.last_event_id, updated_at = EXCLUDED.updated_at";
+
+    private final EntityManager entityManager;
+
+    @Inject
+    public JpaProjectionCheckpointRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Charge le point de reprise d’une projection.
+     *
+     * @param projection Nom de la projection
+     * @return Position enregistrée, ou {@link EventLogPosition#START}
+     */
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public EventLogPosition load(String projection) {
+        final List<Tuple> rows = (List<Tuple>) entityManager
+                .createNativeQuery(SQL_LOAD, Tuple.class)
+                .setParameter("projection", projection)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return EventLogPosition.START;
+        }
+        final Tuple row = rows.get(0);
+        return new EventLogPosition(Long.parseLong((String) row.get("tx_id")),
+                ((Number) row.get("last_event_id")).longValue());
+    }
+
+    /**
+     * Enregistre le point de reprise d’une projection.
+     *
+     * @param projection Nom de la projection
+     * @param position Position du dernier événement traité
+     */
+    @Override
+    @Transactional
+    public void save(String projection, EventLogPosition position) {
+        entityManager.createNativeQuery(SQL_SAVE)
+                .setParameter("projection", projection)
+                .setParameter("txId", position.txId())
+                .setParameter("eventId", position.eventId())
+                .executeUpdate();
+    }
+}
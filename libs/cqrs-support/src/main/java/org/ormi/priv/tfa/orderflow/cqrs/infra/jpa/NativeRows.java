@@ -0,0 +1,84 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.codec.EventPayloadCodecs;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.Tuple;
+
+/**
+ * Conversion des lignes retournées par les requêtes natives sur l’event log et l’outbox.
+ */
+final class NativeRows {
+
+    private NativeRows() {
+    }
+
+    /**
+     * Convertit les colonnes d’une entrée de l’event log en {@link EventLogRecord}.
+     * <p>
+     * La ligne doit exposer {@code aggregate_type}, {@code aggregate_id}, {@code aggregate_version},
+     * {@code event_type}, {@code event_version}, {@code payload} (au format texte),
+     * {@code payload_bin}, {@code payload_codec} et {@code occurred_at}.
+     * </p>
+     *
+     * @param row ligne de résultat
+     * @param idColumn nom de la colonne portant l’identifiant de l’événement
+     * @param objectMapper mapper Jackson pour la lecture du payload
+     * @return l’enregistrement immuable
+     */
+    static EventLogRecord toEventLogRecord(Tuple row, String idColumn, ObjectMapper objectMapper) {
+        try {
+            return new EventLogRecord(
+                    ((Number) row.get(idColumn)).longValue(),
+                    (String) row.get("aggregate_type"),
+                    (UUID) row.get("aggregate_id"),
+                    ((Number) row.get("aggregate_version")).longValue(),
+                    (String) row.get("event_type"),
+                    ((Number) row.get("event_version")).intValue(),
+                    decodePayload(row, objectMapper),
+                    toInstant(row.get("occurred_at")));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid event payload", e);
+        }
+    }
+
+    /**
+     * Décode le payload d’une ligne selon son codec : texte JSON pour le codec JSON,
+     * {@code payload_bin} pour les codecs binaires.
+     */
+    private static JsonNode decodePayload(Tuple row, ObjectMapper objectMapper) throws JsonProcessingException {
+        final short codec = ((Number) row.get("payload_codec")).shortValue();
+        if (codec == EventPayloadCodecs.JSON.id()) {
+            return objectMapper.readTree((String) row.get("payload"));
+        }
+        return EventPayloadCodecs.byId(codec).decode((byte[]) row.get("payload_bin"));
+    }
+
+    /**
+     * Normalise une valeur temporelle retournée par le pilote JDBC.
+     */
+    static Instant toInstant(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Instant instant) {
+            return instant;
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        throw new IllegalStateException("Unsupported temporal type: " + value.getClass());
+    }
+}
@@ -1,6 +1,7 @@
 package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
 
 import java.time.Instant;
+import java.util.UUID;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -33,6 +34,12 @@ import lombok.NoArgsConstructor;
  *   <li>{@code attempts} : Nombre de tentatives de publication.</li>
  *   <li>{@code nextAttemptAt} : Date/heure de la prochaine tentative planifiée.</li>
  *   <li>{@code lastError} : Message de la dernière erreur survenue lors de la tentative de publication.</li>
+ *   <li>{@code aggregateType}, {@code aggregateId}, {@code aggregateVersion} : copie de l’agrégat
+ *       de l’événement source, permettant de sélectionner les messages prêts sans jointure.</li>
+ *   <li>{@code claimedBy} : Instance consommatrice ayant réservé le message.</li>
+ *   <li>{@code createdAt} : Date de publication, clé de partitionnement de la table.</li>
+ *   <li>{@code processedAt} : Date d’acquittement ; {@code null} tant que le message reste à traiter.</li>
+ *   <li>{@code leaseUntil} : Expiration de la réservation ; au-delà, une autre instance peut reprendre le message.</li>
  *   <li>{@code sourceEvent} : Référence vers l’événement original dans {@link EventLogEntity}.</li>
  * </ul>
  * </p>
@@ -42,10 +49,21 @@ import lombok.NoArgsConstructor;
  * <ul>
  *   <li>{@code ix_outbox_ready} : permet de récupérer rapidement les messages prêts à être traités
  *   en triant par {@code next_attempt_at}.</li>
+ *   <li>{@code ix_outbox_lease} : permet d’identifier rapidement les réservations expirées.</li>
+ *   <li>{@code ix_outbox_aggregate} : parcours des messages dans l’ordre de projection.</li>
+ *   <li>{@code ix_outbox_aggregate_held} (partiel, créé par Liquibase) : agrégats bloqués par un
+ *       retry planifié ou un bail actif.</li>
+ *   <li>Tous les index sont partiels ({@code processed_at IS NULL}) : les messages traités
+ *       n’y figurent plus.</li>
  * </ul>
  * </p>
  *
  * <p>
+ * La table est partitionnée par intervalle sur {@code created_at} ; la clé primaire
+ * physique est {@code (id, created_at)}, {@code id} restant unique par construction.
+ * </p>
+ *
+ * <p>
  * Notes :
  * <ul>
  *   <li>Construit via le builder {@link #Builder()} pour une initialisation fluide.</li>
@@ -59,7 +77,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Entity
 @Table(schema = "eventing", name = "outbox", indexes = {
-        @Index(name = "ix_outbox_ready", columnList = "next_attempt_at")
+        @Index(name = "ix_outbox_ready", columnList = "next_attempt_at"),
+        @Index(name = "ix_outbox_lease", columnList = "lease_until"),
+        @Index(name = "ix_outbox_aggregate", columnList = "aggregate_type, aggregate_id, aggregate_version")
 })
 public class OutboxEntity {
     /** Identifiant unique du message dans l’outbox */
@@ -80,6 +100,34 @@ public class OutboxEntity {
     @Column(name = "last_error", nullable = false, updatable = false, columnDefinition = "text")
     private String lastError;
 
+    /** Type de l’agrégat, copié depuis l’événement source */
+    @Column(name = "aggregate_type", nullable = false, updatable = false, columnDefinition = "text")
+    private String aggregateType;
+
+    /** Identifiant de l’agrégat, copié depuis l’événement source */
+    @Column(name = "aggregate_id", nullable = false, updatable = false, columnDefinition = "uuid")
+    private UUID aggregateId;
+
+    /** Version de l’agrégat, copiée depuis l’événement source */
+    @Column(name = "aggregate_version", nullable = false, updatable = false, columnDefinition = "bigint")
+    private Long aggregateVersion;
+
+    /** Date de publication du message, renseignée par la base */
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false, columnDefinition = "timestamptz")
+    private Instant createdAt;
+
+    /** Date d’acquittement du message */
+    @Column(name = "processed_at", updatable = false, columnDefinition = "timestamptz")
+    private Instant processedAt;
+
+    /** Identifiant de l’instance consommatrice détenant le bail sur ce message */
+    @Column(name = "claimed_by", updatable = false, columnDefinition = "text")
+    private String claimedBy;
+
+    /** Date/heure d’expiration du bail */
+    @Column(name = "lease_until", updatable = false, columnDefinition = "timestamptz")
+    private Instant leaseUntil;
+
     /** Référence vers l’événement original à publier */
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "event_id", nullable = false, updatable = false, columnDefinition = "bigint")
@@ -104,10 +152,13 @@ public class OutboxEntity {
             return this;
         }
 
-        /** Construit l’instance {@link OutboxEntity} */
+        /** Construit l’instance {@link OutboxEntity}, en recopiant l’agrégat de l’événement source */
         public OutboxEntity build() {
             OutboxEntity entity = new OutboxEntity();
             entity.sourceEvent = sourceEvent;
+            entity.aggregateType = sourceEvent.getAggregateType();
+            entity.aggregateId = sourceEvent.getAggregateId();
+            entity.aggregateVersion = sourceEvent.getAggregateVersion();
             return entity;
         }
     }
@@ -0,0 +1,108 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.jpa;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Tâche de maintenance des partitions de l’outbox.
+ *
+ * <p>
+ * L’outbox est partitionnée par jour sur {@code created_at} et les messages traités y sont
+ * marqués plutôt que supprimés. Cette tâche, exécutée au démarrage puis toutes les
+ * {@code MAINTENANCE_INTERVAL}, délègue à la fonction SQL
+ * {@code eventing.maintain_outbox_partitions} :
+ * <ul>
+ *   <li>création des partitions des {@code DAYS_AHEAD} prochains jours, en y déplaçant les
+ *       messages de leur plage tombés dans la partition par défaut ;</li>
+ *   <li>suppression ({@code DROP TABLE}) des partitions passées dont tous les messages
+ *       sont traités, sans {@code DELETE} ligne à ligne ni vacuum.</li>
+ * </ul>
+ * La partition par défaut {@code eventing.outbox_default} reçoit les messages sans partition
+ * journalière : une maintenance en retard ne fait pas échouer les écritures.
+ * </p>
+ *
+ * <p>
+ * Activée par {@code orderflow.outbox.partition-maintenance.enabled} (désactivée par défaut,
+ * activée dans la configuration des services d’écriture et de lecture) ; un verrou
+ * consultatif transactionnel garantit qu’une seule instance l’exécute à la fois.
+ * </p>
+ */
+@ApplicationScoped
+public class OutboxPartitionMaintenance {
+
+    private static final int DAYS_AHEAD = 7;
+    private static final Duration MAINTENANCE_INTERVAL = Duration.ofHours(1);
+    private static final long MAINTENANCE_LOCK_KEY = 0x4f42_584d_4149_4e54L;
+
+    private static final String SQL_TRY_LOCK = "SELECT pg_try_advisory_xact_lock(:key)";
+    private static final String SQL_MAINTAIN = "SELECT action, partition_name FROM eventing.maintain_outbox_partitions(:daysAhead)";
+
+    private static final Logger LOG = Logger.getLogger(OutboxPartitionMaintenance.class);
+
+    private final EntityManager entityManager;
+    private final boolean enabled;
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor(r -> new Thread(r, "outbox-partition-maintenance"));
+
+    @Inject
+    public OutboxPartitionMaintenance(
+            EntityManager entityManager,
+            @ConfigProperty(name = "orderflow.outbox.partition-maintenance.enabled", defaultValue = "false") boolean enabled) {
+        this.entityManager = entityManager;
+        this.enabled = enabled;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::run, 0, MAINTENANCE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        LOG.info("OutboxPartitionMaintenance scheduled every " + MAINTENANCE_INTERVAL);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduler.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            LOG.error("Outbox partition maintenance failed", e);
+        }
+    }
+
+    /**
+     * Exécute une passe de maintenance si aucune autre instance n’en exécute une.
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    protected void maintain() {
+        final boolean locked = (Boolean) entityManager
+                .createNativeQuery(SQL_TRY_LOCK)
+                .setParameter("key", MAINTENANCE_LOCK_KEY)
+                .getSingleResult();
+        if (!locked) {
+            return;
+        }
+        final List<Object[]> changes = entityManager
+                .createNativeQuery(SQL_MAINTAIN)
+                .setParameter("daysAhead", DAYS_AHEAD)
+                .getResultList();
+        changes.forEach(change -> LOG.infof("Outbox partition %s %s", change[1], change[0]));
+    }
+}
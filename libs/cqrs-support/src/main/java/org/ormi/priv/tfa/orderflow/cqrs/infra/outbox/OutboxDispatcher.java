@@ -0,0 +1,216 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import org.jboss.logging.Logger;
+import org.ormi.priv.tfa.orderflow.cqrs.KeyedSequentialExecutor;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxMessage;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.OutboxRepository;
+
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+
+/**
+ * Dispatcher générique des messages de l’outbox, tous types d’agrégats confondus.
+ *
+ * <p>
+ * Les {@link OutboxEventHandler} disponibles sont enregistrés par couple (type d’agrégat,
+ * version d’événement). Le dispatcher expose les poids des types pris en charge, utilisés
+ * pour réserver en une seule requête les messages de tous les types (voir
+ * {@link OutboxRepository#claimReadyByAggregateTypes}), puis répartit les messages réservés
+ * sur des voies d’exécution propres à chaque type.
+ * </p>
+ *
+ * <p>
+ * Ordonnancement équitable :
+ * <ul>
+ *   <li>à la réservation, les messages sont pris tour à tour dans chaque type, au prorata
+ *       de son poids : un afflux de messages d’un type n’occupe que sa part du lot ;</li>
+ *   <li>chaque type dispose de sa propre voie ({@link KeyedSequentialExecutor}) dont la
+ *       capacité est sa part pondérée de {@code MAX_CONCURRENT_AGGREGATES} : une voie
+ *       saturée ne bloque que la soumission de son propre type ;</li>
+ *   <li>dans une voie, les messages d’un même agrégat restent traités strictement dans
+ *       l’ordre.</li>
+ * </ul>
+ * </p>
+ */
+@ApplicationScoped
+public class OutboxDispatcher {
+
+    /** Borné sous la taille du pool de connexions : chaque projection active tient une connexion */
+    public static final int MAX_CONCURRENT_AGGREGATES = 16;
+
+    private static final Logger LOG = Logger.getLogger(OutboxDispatcher.class);
+
+    private final Map<String, Map<Integer, OutboxEventHandler>> handlers = new HashMap<>();
+    private final Map<String, Integer> weights = new LinkedHashMap<>();
+    private final Map<String, KeyedSequentialExecutor<UUID>> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService feeders = Executors
+            .newThreadPerTaskExecutor(Thread.ofVirtual().name("outbox-lane-feeder-", 0).factory());
+    private final int totalWeight;
+
+    /**
+     * Constructeur avec injection des handlers disponibles.
+     *
+     * @param available handlers d’événements de l’outbox
+     * @throws IllegalStateException si deux handlers prennent en charge le même couple
+     *                               (type d’agrégat, version d’événement)
+     */
+    @Inject
+    public OutboxDispatcher(Instance<OutboxEventHandler> available) {
+        for (OutboxEventHandler handler : available) {
+            if (handler.weight() <= 0) {
+                throw new IllegalStateException("Outbox handler weight must be positive: " + handler);
+            }
+            final OutboxEventHandler previous = handlers
+                    .computeIfAbsent(handler.aggregateType(), type -> new HashMap<>())
+                    .putIfAbsent(handler.eventVersion(), handler);
+            if (previous != null) {
+                throw new IllegalStateException(String.format("Several outbox handlers for %s v%d",
+                        handler.aggregateType(), handler.eventVersion()));
+            }
+            weights.merge(handler.aggregateType(), handler.weight(), Math::max);
+        }
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        weights.forEach((type, weight) -> LOG.infof("Outbox lane %s: weight %d, %d concurrent aggregates",
+                type, weight, laneSize(type)));
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        feeders.shutdownNow();
+        lanes.values().forEach(KeyedSequentialExecutor::close);
+    }
+
+    /**
+     * @return le poids de chaque type d’agrégat pris en charge
+     */
+    public Map<String, Integer> weights() {
+        return Map.copyOf(weights);
+    }
+
+    /**
+     * Recherche le handler d’un couple (type d’agrégat, version d’événement).
+     *
+     * @param aggregateType type d’agrégat
+     * @param eventVersion version de schéma de l’événement
+     * @return le handler, ou vide si aucun n’est enregistré
+     */
+    public Optional<OutboxEventHandler> handlerFor(String aggregateType, int eventVersion) {
+        return Optional.ofNullable(handlers.getOrDefault(aggregateType, Map.of()).get(eventVersion));
+    }
+
+    /**
+     * Rend durables les projections différées de tous les handlers.
+     *
+     * @throws RuntimeException si un handler n’a pas pu persister ses projections
+     * @see OutboxEventHandler#flush()
+     */
+    public void flushHandlers() {
+        handlers.values().stream()
+                .flatMap(byVersion -> byVersion.values().stream())
+                .distinct()
+                .forEach(OutboxEventHandler::flush);
+    }
+
+    /**
+     * @return le nombre de projections d’agrégat en attente ou en cours, toutes voies confondues
+     */
+    public int pendingTasks() {
+        return lanes.values().stream().mapToInt(KeyedSequentialExecutor::pendingTasks).sum();
+    }
+
+    /**
+     * @param aggregateType type d’agrégat
+     * @return le nombre de projections en attente ou en cours dans la voie du type
+     */
+    public int pendingTasks(String aggregateType) {
+        final KeyedSequentialExecutor<UUID> lane = lanes.get(aggregateType);
+        return lane == null ? 0 : lane.pendingTasks();
+    }
+
+    /**
+     * @param aggregateType type d’agrégat
+     * @return le nombre d’agrégats ayant une projection en attente ou en cours dans la voie du type
+     */
+    public int activeAggregates(String aggregateType) {
+        final KeyedSequentialExecutor<UUID> lane = lanes.get(aggregateType);
+        return lane == null ? 0 : lane.activeKeys();
+    }
+
+    /**
+     * Répartit des lots de messages par agrégat sur les voies de leur type et attend
+     * la fin de leur traitement.
+     * <p>
+     * Chaque type est alimenté par son propre thread virtuel : lorsque la voie d’un type
+     * est pleine, seul ce thread attend, les autres types continuent de progresser.
+     * </p>
+     *
+     * @param aggregates messages groupés par agrégat, chaque groupe trié par version
+     * @param processor traitement d’un groupe, retournant le nombre de messages traités avec succès
+     * @return le nombre total de messages traités avec succès
+     * @throws InterruptedException si l’appelant est interrompu pendant l’attente
+     * @throws ExecutionException si un traitement échoue de façon inattendue
+     */
+    public int dispatch(Collection<List<OutboxMessage>> aggregates, ToIntFunction<List<OutboxMessage>> processor)
+            throws InterruptedException, ExecutionException {
+        final Map<String, List<List<OutboxMessage>>> byType = aggregates.stream()
+                .filter(group -> !group.isEmpty())
+                .collect(Collectors.groupingBy(
+                        group -> group.get(0).event().aggregateType(),
+                        LinkedHashMap::new,
+                        Collectors.toList()));
+        final List<Future<Integer>> fed = new ArrayList<>(byType.size());
+        byType.forEach((type, groups) -> fed.add(feeders.submit(() -> feed(lane(type), groups, processor))));
+        int processed = 0;
+        for (Future<Integer> result : fed) {
+            processed += result.get();
+        }
+        return processed;
+    }
+
+    private static int feed(KeyedSequentialExecutor<UUID> lane, List<List<OutboxMessage>> groups,
+            ToIntFunction<List<OutboxMessage>> processor) throws InterruptedException, ExecutionException {
+        final List<Future<Integer>> pending = new ArrayList<>(groups.size());
+        for (List<OutboxMessage> group : groups) {
+            pending.add(lane.submit(group.get(0).event().aggregateId(), () -> processor.applyAsInt(group)));
+        }
+        int processed = 0;
+        for (Future<Integer> result : pending) {
+            processed += result.get();
+        }
+        return processed;
+    }
+
+    private KeyedSequentialExecutor<UUID> lane(String aggregateType) {
+        return lanes.computeIfAbsent(aggregateType,
+                type -> new KeyedSequentialExecutor<>("outbox-" + type, laneSize(type)));
+    }
+
+    /**
+     * Part pondérée de {@code MAX_CONCURRENT_AGGREGATES} revenant à un type, au moins 1.
+     */
+    private int laneSize(String aggregateType) {
+        final Integer weight = weights.get(aggregateType);
+        if (weight == null || totalWeight == 0) {
+            return 1;
+        }
+        return Math.max(1, MAX_CONCURRENT_AGGREGATES * weight / totalWeight);
+    }
+}
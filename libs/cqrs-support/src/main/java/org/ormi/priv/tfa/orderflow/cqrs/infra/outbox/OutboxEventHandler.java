@@ -0,0 +1,94 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.outbox;
+
+import java.util.List;
+
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+import org.ormi.priv.tfa.orderflow.cqrs.infra.persistence.EventLogRecord;
+
+/**
+ * Traitement des événements de l’outbox pour un couple (type d’agrégat, version d’événement).
+ *
+ * <p>
+ * Les implémentations sont des beans CDI découverts par l’{@link OutboxDispatcher} ;
+ * chaque couple {@link #aggregateType()} / {@link #eventVersion()} ne peut être pris en
+ * charge que par un seul handler. Les messages de l’outbox pour lesquels aucun handler
+ * n’est enregistré ne sont plus ignorés : ils sont marqués en échec puis, une fois leurs
+ * tentatives épuisées, déplacés vers la dead letter.
+ * </p>
+ *
+ * <p>
+ * Exemple d’utilisation :
+ * <pre>{@code
+ * @ApplicationScoped
+ * public class StockEventV1Handler implements OutboxEventHandler {
+ *     public String aggregateType() { return AggregateType.STOCK.value(); }
+ *     public int eventVersion() { return 1; }
+ *     public ProjectionResult<?> handle(EventLogRecord event) { ... }
+ * }
+ * }</pre>
+ * </p>
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * @return le type d’agrégat pris en charge (ex. "Product")
+     */
+    String aggregateType();
+
+    /**
+     * @return la version de schéma d’événement prise en charge
+     */
+    int eventVersion();
+
+    /**
+     * Poids du type d’agrégat dans l’ordonnancement équitable du dispatcher.
+     * <p>
+     * Un type de poids 2 reçoit deux fois plus de messages par lot et deux fois plus de
+     * projections concurrentes qu’un type de poids 1. Lorsque plusieurs versions d’un même
+     * type sont enregistrées, le poids le plus élevé est retenu.
+     * </p>
+     *
+     * @return le poids, strictement positif
+     */
+    default int weight() {
+        return 1;
+    }
+
+    /**
+     * Traite un événement.
+     *
+     * @param event événement à traiter
+     * @return résultat du traitement
+     */
+    ProjectionResult<?> handle(EventLogRecord event);
+
+    /**
+     * Traite en un seul lot plusieurs événements d’un même agrégat.
+     * <p>
+     * Par défaut, le traitement groupé n’est pas pris en charge : le résultat est un no-op
+     * et le dispatcher retraite alors les événements un par un via {@link #handle}.
+     * </p>
+     *
+     * @param events événements d’un même agrégat, triés par version
+     * @return résultat du traitement groupé
+     */
+    default ProjectionResult<?> handleAll(List<EventLogRecord> events) {
+        return ProjectionResult.noOp("Batched handling not supported");
+    }
+
+    /**
+     * Rend durables les projections encore différées en mémoire.
+     * <p>
+     * Un handler peut accepter un événement ({@link #handle} réussi) avant d’en avoir
+     * persisté la projection. Les consommateurs appellent cette méthode avant d’acquitter
+     * des événements ou de faire avancer leur point de reprise : au retour, toutes les
+     * projections acceptées auparavant sont persistées. Par défaut, les projections sont
+     * persistées dès leur traitement et il n’y a rien à faire.
+     * </p>
+     *
+     * @throws RuntimeException si les projections n’ont pas pu être persistées ; les
+     *                          événements concernés ne doivent alors pas être acquittés
+     */
+    default void flush() {
+    }
+}
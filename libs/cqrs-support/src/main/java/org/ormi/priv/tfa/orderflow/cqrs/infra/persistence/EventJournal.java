@@ -0,0 +1,38 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+import org.ormi.priv.tfa.orderflow.cqrs.EventEnvelope;
+
+/**
+ * Écriture combinée de l’event log et de l’outbox.
+ *
+ * <p>
+ * Remplace la séquence {@link EventLogRepository#append} puis {@link OutboxRepository#publish}
+ * des handlers de commande : l’événement, son message d’outbox et la notification sur
+ * {@link OutboxRepository#READY_CHANNEL} sont écrits par une seule instruction, soit un
+ * seul aller-retour vers la base, sans entité gérée ni flush intermédiaire.
+ * </p>
+ *
+ * <p>
+ * Exemple d’utilisation :
+ * <pre>{@code
+ * EventEnvelope<ProductRetired> evt = product.retire();
+ * repository.save(product);
+ * journal.appendAndEnqueue(evt);
+ * }</pre>
+ * </p>
+ */
+public interface EventJournal {
+
+    /**
+     * Ajoute un événement au journal et le publie dans l’outbox, dans la transaction courante.
+     *
+     * <p>
+     * Avec {@code orderflow.outbox.enabled=false}, seul l’event log est écrit et la
+     * notification émise (voir {@link OutboxRepository#publish}).
+     * </p>
+     *
+     * @param event l’événement métier enveloppé
+     * @return l’entrée de l’event log écrite
+     */
+    EventLogRecord appendAndEnqueue(EventEnvelope<?> event);
+}
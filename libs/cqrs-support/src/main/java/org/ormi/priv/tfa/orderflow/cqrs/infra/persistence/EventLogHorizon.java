@@ -0,0 +1,13 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+/**
+ * Horizon de lecture de l’event log à un instant donné (voir
+ * {@link EventLogRepository#readCommittedAfter}).
+ *
+ * @param snapshotXmin plus ancienne transaction encore en cours ({@code pg_snapshot_xmin}) :
+ *                     seuls les événements de transactions antérieures sont lisibles
+ * @param heldBackEvents nombre d’événements déjà commités mais masqués par une transaction
+ *                       plus ancienne restée ouverte
+ */
+public record EventLogHorizon(long snapshotXmin, long heldBackEvents) {
+}
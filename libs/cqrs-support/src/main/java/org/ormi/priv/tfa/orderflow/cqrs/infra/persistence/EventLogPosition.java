@@ -0,0 +1,22 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+/**
+ * Position d’un événement dans l’ordre global de l’event log.
+ *
+ * <p>
+ * Les identifiants ({@code bigserial}) sont attribués à l’insertion mais deviennent visibles
+ * au commit : un identifiant plus petit peut apparaître après un plus grand. L’ordre global
+ * est donc celui de la transaction d’écriture ({@code tx_id}) puis de l’identifiant, et
+ * seules les transactions antérieures à toute transaction encore en cours sont lues (voir
+ * {@link EventLogRepository#readCommittedAfter(EventLogPosition, int)}) : aucun événement ne
+ * peut plus apparaître derrière une position déjà lue.
+ * </p>
+ *
+ * @param txId identifiant de la transaction ayant inséré l’événement ({@code xid8})
+ * @param eventId identifiant de l’événement dans l’event log
+ */
+public record EventLogPosition(long txId, long eventId) {
+
+    /** Position précédant tout événement */
+    public static final EventLogPosition START = new EventLogPosition(0, 0);
+}
@@ -0,0 +1,55 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Vue immuable d’une entrée de l’event log, détachée de tout contexte de persistance.
+ *
+ * <p>
+ * Porte les mêmes champs que {@link EventLogEntity} ; elle est produite directement
+ * par les requêtes de lecture en masse (voir {@link OutboxMessage}) afin d’éviter le
+ * chargement d’entités gérées.
+ * </p>
+ *
+ * @param id identifiant de l’événement dans l’event log
+ * @param aggregateType type de l’agrégat
+ * @param aggregateId identifiant de l’agrégat
+ * @param aggregateVersion version de l’agrégat produite par l’événement
+ * @param eventType type de l’événement métier
+ * @param eventVersion version du schéma de l’événement
+ * @param payload données métier de l’événement
+ * @param occurredAt date de production de l’événement
+ */
+public record EventLogRecord(
+        Long id,
+        String aggregateType,
+        UUID aggregateId,
+        Long aggregateVersion,
+        String eventType,
+        int eventVersion,
+        JsonNode payload,
+        Instant occurredAt) {
+
+    /**
+     * Construit la vue immuable d’une entité de l’event log.
+     *
+     * @param entity entité source
+     * @return l’enregistrement équivalent
+     */
+    public static EventLogRecord of(EventLogEntity entity) {
+        return new EventLogRecord(
+                entity.getId(),
+                entity.getAggregateType(),
+                entity.getAggregateId(),
+                entity.getAggregateVersion(),
+                entity.getEventType(),
+                entity.getEventVersion(),
+                entity.decodePayload(),
+                entity.getOccurredAt());
+    }
+}
@@ -1,5 +1,8 @@
 package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
 
+import java.util.List;
+import java.util.UUID;
+
 import org.ormi.priv.tfa.orderflow.cqrs.EventEnvelope;
 import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.EventLogEntity;
 
@@ -37,4 +40,52 @@ public interface EventLogRepository {
      * @return l’entité persistée {@link EventLogEntity} représentant l’événement stocké
      */
     EventLogEntity append(EventEnvelope<?> eventLog);
+
+    /**
+     * Lit dans l’ordre global les événements suivant une position, limités aux transactions
+     * dont le résultat est définitif.
+     *
+     * <p>
+     * Seuls les événements écrits par des transactions antérieures à la plus ancienne
+     * transaction encore en cours ({@code pg_snapshot_xmin}) sont retournés : un événement
+     * commité plus tard aura toujours une position supérieure, et un consommateur peut
+     * enregistrer la dernière position lue comme point de reprise sans jamais en manquer.
+     * </p>
+     *
+     * <p>
+     * En contrepartie, une transaction longue, quelle qu’elle soit, masque tous les événements
+     * commités après son début jusqu’à sa fin : la lecture s’arrête sans erreur. Un
+     * consommateur doit surveiller cet horizon via {@link #committedHorizon()}.
+     * </p>
+     *
+     * @param after position du dernier événement déjà traité
+     * @param limit nombre maximal d’événements à retourner
+     * @return les événements suivants, triés par position
+     */
+    List<PositionedEvent> readCommittedAfter(EventLogPosition after, int limit);
+
+    /**
+     * Mesure l’horizon de lecture de {@link #readCommittedAfter} : plus ancienne transaction
+     * encore en cours et nombre d’événements commités qu’elle masque.
+     *
+     * @return l’horizon courant
+     */
+    EventLogHorizon committedHorizon();
+
+    /**
+     * Lit les événements d’un agrégat dont la version est comprise entre deux bornes incluses.
+     *
+     * <p>
+     * Permet à un consommateur de récupérer directement des événements manquants, par
+     * exemple lorsqu’une livraison hors ordre laisse un trou dans les versions.
+     * </p>
+     *
+     * @param aggregateType type de l’agrégat
+     * @param aggregateId identifiant de l’agrégat
+     * @param fromVersion première version à lire
+     * @param toVersion dernière version à lire
+     * @return les événements trouvés, triés par version
+     */
+    List<EventLogRecord> readAggregateRange(String aggregateType, UUID aggregateId, long fromVersion,
+            long toVersion);
 }
@@ -0,0 +1,27 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * État du backlog de l’outbox à un instant donné.
+ *
+ * @param depth nombre de messages non traités et encore traitables
+ * @param oldestReadyAt date de création du plus ancien message prêt à être traité,
+ *                      ou {@code null} si aucun message n’est prêt
+ */
+public record OutboxBacklog(long depth, Instant oldestReadyAt) {
+
+    /**
+     * Retard de projection : âge du plus ancien message prêt.
+     *
+     * @param now instant de référence
+     * @return l’âge du plus ancien message prêt, ou {@link Duration#ZERO} si aucun
+     */
+    public Duration lag(Instant now) {
+        if (oldestReadyAt == null || oldestReadyAt.isAfter(now)) {
+            return Duration.ZERO;
+        }
+        return Duration.between(oldestReadyAt, now);
+    }
+}
@@ -0,0 +1,25 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+import java.time.Instant;
+
+/**
+ * Message de l’outbox accompagné de son événement source, chargés en une seule requête.
+ *
+ * <p>
+ * Contrairement à {@link org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity}, ce record
+ * n’est pas géré par JPA : aucun chargement différé ni suivi dans le contexte de persistance.
+ * </p>
+ *
+ * @param id identifiant du message dans l’outbox
+ * @param attempts nombre de tentatives déjà effectuées
+ * @param nextAttemptAt date de la prochaine tentative planifiée, ou {@code null}
+ * @param lastError dernière erreur rencontrée, ou {@code null}
+ * @param event événement source à projeter
+ */
+public record OutboxMessage(
+        Long id,
+        int attempts,
+        Instant nextAttemptAt,
+        String lastError,
+        EventLogRecord event) {
+}
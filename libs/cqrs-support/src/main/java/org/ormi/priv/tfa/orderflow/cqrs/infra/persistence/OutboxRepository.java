@@ -1,6 +1,8 @@
 package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
 
@@ -16,8 +18,13 @@ import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
  * Cette interface définit les opérations essentielles pour :
  * <ul>
  *   <li>Publier un événement dans l’outbox.</li>
- *   <li>Récupérer les événements prêts à être traités pour un type d’agrégat donné.</li>
- *   <li>Supprimer ou marquer comme échoué un événement après traitement.</li>
+ *   <li>Récupérer les événements prêts à être traités pour un ou plusieurs types d’agrégats.</li>
+ *   <li>Réserver ces événements par bail pour une instance consommatrice, et prolonger ce bail.</li>
+ *   <li>Marquer un événement comme traité ou échoué après traitement.</li>
+ *   <li>Marquer plusieurs événements comme traités ou échoués en une seule transaction.</li>
+ *   <li>Abandonner des événements qui ne peuvent plus aboutir, sans attendre leurs tentatives.</li>
+ *   <li>Déplacer les événements ayant épuisé leurs tentatives vers la table de dead letter.</li>
+ *   <li>Enregistrer en dead letter les événements abandonnés par les consommateurs de l’event log.</li>
  * </ul>
  * </p>
  *
@@ -35,19 +42,43 @@ import org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxEntity;
  * for (OutboxEntity evt : readyEvents) {
  *     try {
  *         dispatcher.dispatch(evt.getSourceEvent());
- *         outboxRepository.delete(evt);
+ *         outboxRepository.markProcessed(evt);
  *     } catch (Exception ex) {
  *         outboxRepository.markFailed(evt, ex.getMessage(), 5000);
  *     }
  * }
  * }</pre>
  * </p>
+ *
+ * <p>
+ * Les événements traités ne sont pas supprimés mais marqués ({@code processed_at}) :
+ * l’outbox est partitionnée par date de création et les partitions entièrement traitées
+ * sont supprimées d’un bloc (voir
+ * {@link org.ormi.priv.tfa.orderflow.cqrs.infra.jpa.OutboxPartitionMaintenance}), ce qui
+ * évite les lignes mortes et la pression sur l’autovacuum d’un {@code DELETE} par message.
+ * </p>
+ *
+ * <p>
+ * Chaque publication émet également une notification PostgreSQL sur le canal
+ * {@link #READY_CHANNEL}, délivrée au commit de la transaction. Les consommateurs
+ * peuvent s’y abonner ({@code LISTEN}) pour être réveillés sans attendre le prochain
+ * cycle de polling.
+ * </p>
  */
 public interface OutboxRepository {
 
+    /** Canal de notification PostgreSQL signalant l’arrivée de nouveaux messages dans l’outbox */
+    String READY_CHANNEL = "eventing_outbox_ready";
+
     /**
      * Publie un événement dans l’outbox pour traitement ultérieur.
      *
+     * <p>
+     * Une notification est émise sur {@link #READY_CHANNEL} avec le type d’agrégat
+     * comme charge utile. Lorsque l’outbox est désactivée ({@code orderflow.outbox.enabled=false},
+     * consommation de l’event log par position), seule la notification est émise.
+     * </p>
+     *
      * @param entity l’entité {@link OutboxEntity} à publier
      */
     void publish(OutboxEntity entity);
@@ -64,14 +95,105 @@ public interface OutboxRepository {
     List<OutboxEntity> fetchReadyByAggregateTypeOrderByAggregateVersion(String aggregateType, int limit, int maxRetries);
 
     /**
-     * Supprime un événement de l’outbox après traitement réussi.
+     * Réserve atomiquement les événements prêts à être traités pour un type d’agrégat
+     * donné et les retourne, triés par agrégat puis par version.
      *
-     * @param entity l’entité {@link OutboxEntity} à supprimer
+     * <p>
+     * Chaque message réservé reçoit {@code claimed_by = owner} et un bail expirant après
+     * {@code leaseMs}. Tant que le bail est actif, aucune autre instance ne peut réserver
+     * ce message ni aucun autre message du même agrégat, ce qui préserve l’ordre de
+     * projection par agrégat entre instances. Un bail expiré (instance arrêtée ou bloquée)
+     * rend les messages de nouveau disponibles.
+     * </p>
+     *
+     * <p>
+     * Les messages sont retournés avec leur événement source, chargés par la même requête,
+     * sous forme de {@link OutboxMessage} immuables non gérés par JPA.
+     * </p>
+     *
+     * @param aggregateType le type d’agrégat (ex. "PRODUCT")
+     * @param owner identifiant de l’instance consommatrice
+     * @param limit le nombre maximum d’événements à réserver
+     * @param maxRetries le nombre maximum de tentatives avant de considérer un événement comme échoué
+     * @param leaseMs durée du bail en millisecondes
+     * @return la liste des {@link OutboxMessage} réservés
      */
-    void delete(OutboxEntity entity);
+    List<OutboxMessage> claimReadyByAggregateType(String aggregateType, String owner, int limit, int maxRetries,
+            int leaseMs);
+
+    /**
+     * Réserve les événements prêts à être traités, restreints à un sous-ensemble
+     * de partitions logiques.
+     *
+     * <p>
+     * Un agrégat appartient à la partition
+     * {@code (hashtext(aggregate_id::text) & 2147483647) % partitionCount}. Tous les
+     * événements d’un même agrégat tombent donc dans la même partition, ce qui permet
+     * de répartir les partitions entre instances sans rompre l’ordre par agrégat.
+     * </p>
+     *
+     * @param aggregateType le type d’agrégat (ex. "PRODUCT")
+     * @param owner identifiant de l’instance consommatrice
+     * @param limit le nombre maximum d’événements à réserver
+     * @param maxRetries le nombre maximum de tentatives avant de considérer un événement comme échoué
+     * @param leaseMs durée du bail en millisecondes
+     * @param partitionCount nombre total de partitions logiques
+     * @param partitions partitions détenues par l’instance, non vide
+     * @return la liste des {@link OutboxMessage} réservés
+     * @see #claimReadyByAggregateType(String, String, int, int, int)
+     */
+    List<OutboxMessage> claimReadyByAggregateType(String aggregateType, String owner, int limit, int maxRetries,
+            int leaseMs, int partitionCount, Collection<Integer> partitions);
+
+    /**
+     * Réserve en une seule requête les événements prêts de plusieurs types d’agrégats,
+     * restreints à un sous-ensemble de partitions logiques.
+     *
+     * <p>
+     * Le lot est réparti entre les types par tourniquet pondéré : à chaque tour, jusqu’à
+     * {@code weight} messages de chaque type sont retenus, jusqu’à {@code limit} messages
+     * au total. Un type sans message prêt laisse sa part aux autres ; un type en afflux ne
+     * peut pas évincer les autres du lot.
+     * </p>
+     *
+     * @param weightsByAggregateType poids de chaque type d’agrégat à réserver, strictement positifs
+     * @param owner identifiant de l’instance consommatrice
+     * @param limit le nombre maximum d’événements à réserver, tous types confondus
+     * @param maxRetries le nombre maximum de tentatives avant de considérer un événement comme échoué
+     * @param leaseMs durée du bail en millisecondes
+     * @param partitionCount nombre total de partitions logiques
+     * @param partitions partitions détenues par l’instance
+     * @return la liste des {@link OutboxMessage} réservés, triés par type, agrégat puis version
+     * @see #claimReadyByAggregateType(String, String, int, int, int, int, Collection)
+     */
+    List<OutboxMessage> claimReadyByAggregateTypes(Map<String, Integer> weightsByAggregateType, String owner,
+            int limit, int maxRetries, int leaseMs, int partitionCount, Collection<Integer> partitions);
+
+    /**
+     * Prolonge le bail des messages encore détenus par une instance.
+     *
+     * <p>
+     * Seuls les messages dont {@code claimed_by} vaut {@code owner} sont prolongés :
+     * un message repris par une autre instance après expiration n’est pas affecté.
+     * </p>
+     *
+     * @param owner identifiant de l’instance consommatrice
+     * @param ids identifiants des messages en cours de traitement
+     * @param leaseMs nouvelle durée du bail en millisecondes, à partir de maintenant
+     * @return le nombre de baux prolongés
+     */
+    int renewLeases(String owner, Collection<Long> ids, int leaseMs);
+
+    /**
+     * Marque un événement de l’outbox comme traité avec succès.
+     *
+     * @param entity l’entité {@link OutboxEntity} à acquitter
+     */
+    void markProcessed(OutboxEntity entity);
 
     /**
      * Marque un événement comme ayant échoué avec un délai de réessai par défaut.
+     * Le bail éventuel est libéré.
      *
      * @param entity l’entité {@link OutboxEntity} à marquer comme échouée
      * @param err le message d’erreur à enregistrer
@@ -86,4 +208,70 @@ public interface OutboxRepository {
      * @param retryAfter délai en millisecondes avant la prochaine tentative
      */
     void markFailed(OutboxEntity entity, String err, int retryAfter);
+
+    /**
+     * Marque en une seule instruction un ensemble d’événements comme traités avec succès.
+     *
+     * @param ids identifiants des messages d’outbox à acquitter
+     * @return le nombre de messages acquittés
+     */
+    long markAllProcessed(Collection<Long> ids);
+
+    /**
+     * Marque plusieurs événements comme ayant échoué en une seule transaction.
+     *
+     * <p>
+     * Les messages partageant le même message d’erreur sont mis à jour par une
+     * seule instruction. Les baux éventuels sont libérés.
+     * </p>
+     *
+     * @param errorsById message d’erreur à enregistrer, par identifiant de message d’outbox
+     * @param retryAfter délai en millisecondes avant la prochaine tentative
+     */
+    void markAllFailed(Map<Long, String> errorsById, int retryAfter);
+
+    /**
+     * Marque plusieurs événements comme ayant épuisé leurs tentatives, sans nouvel essai.
+     *
+     * <p>
+     * Utilisé pour les événements qui ne peuvent plus aboutir, par exemple retenus derrière
+     * une séquence déjà abandonnée. Ils sont ensuite déplacés en dead letter par
+     * {@link #moveExhaustedToDeadLetter(int)}. Les baux éventuels sont libérés.
+     * </p>
+     *
+     * @param errorsById message d’erreur à enregistrer, par identifiant de message d’outbox
+     * @param maxRetries le nombre de tentatives à partir duquel un événement est abandonné
+     */
+    void markAllExhausted(Map<Long, String> errorsById, int maxRetries);
+
+    /**
+     * Déplace vers {@code eventing.outbox_dead_letter} les événements ayant atteint le
+     * nombre maximal de tentatives, afin que l’outbox ne contienne que des messages
+     * encore traitables.
+     *
+     * @param maxRetries le nombre de tentatives à partir duquel un événement est abandonné
+     * @return le nombre d’événements déplacés
+     */
+    int moveExhaustedToDeadLetter(int maxRetries);
+
+    /**
+     * Enregistre dans {@code eventing.outbox_dead_letter} un événement abandonné par un
+     * consommateur de l’event log (réplication logique, point de reprise), qui n’a pas de
+     * message d’outbox à déplacer.
+     *
+     * @param eventId identifiant de l’événement dans l’event log
+     * @param attempts nombre de tentatives effectuées
+     * @param lastError dernière erreur de projection
+     * @param consumer consommateur ayant abandonné l’événement (slot, projection)
+     */
+    void deadLetter(long eventId, int attempts, String lastError, String consumer);
+
+    /**
+     * Mesure le backlog de l’outbox : nombre de messages restant à traiter et date de
+     * création du plus ancien message prêt.
+     *
+     * @param maxRetries le nombre de tentatives à partir duquel un événement n’est plus compté
+     * @return l’état du backlog
+     */
+    OutboxBacklog backlog(int maxRetries);
 }
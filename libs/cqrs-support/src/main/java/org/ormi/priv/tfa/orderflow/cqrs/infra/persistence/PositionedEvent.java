@@ -0,0 +1,10 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+/**
+ * Événement de l’event log accompagné de sa position dans l’ordre global.
+ *
+ * @param position position de l’événement, à enregistrer comme point de reprise une fois traité
+ * @param event événement
+ */
+public record PositionedEvent(EventLogPosition position, EventLogRecord event) {
+}
@@ -0,0 +1,39 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.persistence;
+
+/**
+ * Points de reprise des projections consommant l’event log par position.
+ *
+ * <p>
+ * Chaque projection, identifiée par son nom, tient son propre curseur sur l’event log
+ * ({@code eventing.projection_checkpoint}) : plusieurs projections indépendantes peuvent
+ * ainsi lire le même journal à leur rythme, sans ligne d’outbox par événement.
+ * </p>
+ *
+ * <p>
+ * Exemple d’utilisation :
+ * <pre>{@code
+ * EventLogPosition from = checkpoints.load("product_view");
+ * List<PositionedEvent> range = eventLog.readCommittedAfter(from, 1000);
+ * // ... projection du lot
+ * checkpoints.save("product_view", range.get(range.size() - 1).position());
+ * }</pre>
+ * </p>
+ */
+public interface ProjectionCheckpointRepository {
+
+    /**
+     * Charge le point de reprise d’une projection.
+     *
+     * @param projection nom de la projection
+     * @return la position du dernier événement traité, ou {@link EventLogPosition#START}
+     */
+    EventLogPosition load(String projection);
+
+    /**
+     * Enregistre le point de reprise d’une projection.
+     *
+     * @param projection nom de la projection
+     * @param position position du dernier événement traité
+     */
+    void save(String projection, EventLogPosition position);
+}
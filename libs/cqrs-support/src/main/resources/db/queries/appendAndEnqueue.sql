@@ -0,0 +1,16 @@
+WITH appended AS (
+    INSERT INTO eventing.event_log (aggregate_type, aggregate_id, aggregate_version, event_type, event_version,
+                                    occurred_at, payload, payload_bin, payload_codec)
+    VALUES (:aggregateType, :aggregateId, :aggregateVersion, :eventType, :eventVersion,
+            :occurredAt, CAST(NULLIF(:payload, '') AS jsonb), NULLIF(:payloadBin, CAST('' AS bytea)), :payloadCodec)
+    RETURNING id, aggregate_type, aggregate_id, aggregate_version
+),
+enqueued AS (
+    INSERT INTO eventing.outbox (event_id, attempts, aggregate_type, aggregate_id, aggregate_version)
+    SELECT a.id, 0, a.aggregate_type, a.aggregate_id, a.aggregate_version
+    FROM appended a
+    WHERE CAST(:enqueue AS boolean)
+)
+SELECT a.id
+FROM appended a
+CROSS JOIN LATERAL (SELECT pg_notify(CAST(:channel AS text), a.aggregate_type)) n
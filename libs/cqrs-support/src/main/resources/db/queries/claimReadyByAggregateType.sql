@@ -0,0 +1,37 @@
+WITH claimed AS (
+    UPDATE eventing.outbox o
+    SET claimed_by = :owner,
+        lease_until = CURRENT_TIMESTAMP + (:leaseMs * INTERVAL '1 millisecond')
+    WHERE o.id IN (
+        SELECT r.id FROM (
+            SELECT c.id, c.aggregate_type, c.aggregate_id FROM eventing.outbox c
+            WHERE c.processed_at IS NULL
+            AND c.aggregate_type = :aggregateTypes
+            AND c.attempts < :maxAttempts
+            AND (hashtext(c.aggregate_id::text) & 2147483647) % :partitionCount IN (:partitions)
+            AND (c.next_attempt_at <= CURRENT_TIMESTAMP OR c.next_attempt_at IS NULL)
+            AND (c.lease_until IS NULL OR c.lease_until < CURRENT_TIMESTAMP OR c.claimed_by = :owner)
+            AND NOT EXISTS (
+                SELECT 1 FROM eventing.outbox h
+                WHERE h.aggregate_id = c.aggregate_id
+                AND h.processed_at IS NULL
+                AND (h.next_attempt_at IS NOT NULL OR h.lease_until IS NOT NULL)
+                AND (h.next_attempt_at > CURRENT_TIMESTAMP
+                    OR (h.lease_until >= CURRENT_TIMESTAMP AND h.claimed_by <> :owner))
+            )
+            ORDER BY c.aggregate_id, c.aggregate_version
+            LIMIT :limit
+            FOR UPDATE OF c SKIP LOCKED
+        ) r
+        WHERE pg_try_advisory_xact_lock(hashtext(r.aggregate_type), hashtext(r.aggregate_id::text))
+    )
+    AND o.processed_at IS NULL
+    RETURNING o.id, o.event_id, o.attempts, o.next_attempt_at, o.last_error
+)
+SELECT c.id, c.attempts, c.next_attempt_at, c.last_error,
+       e.id AS event_id, e.aggregate_type, e.aggregate_id, e.aggregate_version,
+       e.event_type, e.event_version, e.payload::text AS payload, e.payload_bin, e.payload_codec,
+       e.occurred_at
+FROM claimed c
+INNER JOIN eventing.event_log e ON e.id = c.event_id
+ORDER BY e.aggregate_id, e.aggregate_version
@@ -0,0 +1,8 @@
+WITH exhausted AS (
+    DELETE FROM eventing.outbox o
+    WHERE o.processed_at IS NULL
+    AND o.attempts >= :maxAttempts
+    RETURNING o.id, o.event_id, o.attempts, o.last_error
+)
+INSERT INTO eventing.outbox_dead_letter (id, event_id, attempts, last_error)
+SELECT id, event_id, attempts, last_error FROM exhausted
@@ -0,0 +1,12 @@
+-- Lecture bornée à pg_snapshot_xmin afin que le point de reprise ne saute jamais un événement.
+-- En contrepartie, une transaction longue, même sans rapport avec l’event log, masque tous les
+-- événements commités après son début jusqu’à sa fin, et la lecture s’arrête sans erreur.
+-- Surveillance via EventLogRepository.committedHorizon et les jauges projection.checkpoint.horizon.*
+SELECT e.tx_id::text AS tx_id, e.id, e.aggregate_type, e.aggregate_id, e.aggregate_version,
+       e.event_type, e.event_version, e.payload::text AS payload, e.payload_bin, e.payload_codec,
+       e.occurred_at
+FROM eventing.event_log e
+WHERE (e.tx_id, e.id) > (CAST(CAST(:txId AS text) AS xid8), :eventId)
+AND e.tx_id < pg_snapshot_xmin(pg_current_snapshot())
+ORDER BY e.tx_id, e.id
+LIMIT :limit
@@ -0,0 +1,8 @@
+SELECT e.id, e.aggregate_type, e.aggregate_id, e.aggregate_version,
+       e.event_type, e.event_version, e.payload::text AS payload, e.payload_bin, e.payload_codec,
+       e.occurred_at
+FROM eventing.event_log e
+WHERE e.aggregate_type = :aggregateType
+AND e.aggregate_id = :aggregateId
+AND e.aggregate_version BETWEEN :fromVersion AND :toVersion
+ORDER BY e.aggregate_version
@@ -0,0 +1,143 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK_MS = 10;
+    private static final Duration TICK = Duration.ofMillis(TICK_MS);
+    /** Roue de 4 cases : 40 ms au premier niveau, 160 ms au deuxième, 640 ms au troisième */
+    private static final int WHEEL_SIZE = 4;
+    /** Horloge de départ volontairement décalée d’une demi-case */
+    private static final long START_MS = 1_005;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final AtomicLong clock = new AtomicLong(START_MS);
+    private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(TICK, WHEEL_SIZE, clock::get);
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    void runsTaskNotBeforeItsDelayAndWithinOneTick() {
+        final AtomicInteger runs = new AtomicInteger();
+
+        wheel.schedule(Duration.ofMillis(30), runs::incrementAndGet);
+
+        advanceBy(30);
+        assertEquals(0, runs.get());
+        advanceBy(TICK_MS);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void runsTasksInDeadlineOrder() {
+        final List<Long> delays = List.of(300L, 60L, 180L, 20L, 120L, 240L);
+        final List<Long> executed = new ArrayList<>();
+
+        for (long delay : delays) {
+            wheel.schedule(Duration.ofMillis(delay), () -> executed.add(delay));
+        }
+
+        advanceBy(310);
+        assertEquals(delays.stream().sorted().toList(), executed);
+    }
+
+    @Test
+    void cascadesTasksFromUpperLevels() {
+        final AtomicInteger runs = new AtomicInteger();
+
+        // Au-delà des deux premiers niveaux (160 ms) : la tâche redescend deux fois
+        wheel.schedule(Duration.ofMillis(500), runs::incrementAndGet);
+
+        assertEquals(1, wheel.pending());
+        advanceBy(500);
+        assertEquals(0, runs.get());
+        assertEquals(1, wheel.pending());
+        advanceBy(TICK_MS);
+        assertEquals(1, runs.get());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void runsExpiredTaskImmediately() {
+        final AtomicInteger runs = new AtomicInteger();
+
+        wheel.schedule(Duration.ofMillis(-5), runs::incrementAndGet);
+
+        assertEquals(1, runs.get());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void countsPendingTasks() {
+        final AtomicInteger runs = new AtomicInteger();
+
+        wheel.schedule(Duration.ofMillis(50), runs::incrementAndGet);
+        wheel.schedule(Duration.ofMillis(100), runs::incrementAndGet);
+        wheel.schedule(Duration.ofMillis(400), runs::incrementAndGet);
+
+        assertEquals(3, wheel.pending());
+        advanceBy(60);
+        assertEquals(2, wheel.pending());
+        advanceBy(400);
+        assertEquals(0, wheel.pending());
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void dropsPendingTasksOnClose() {
+        final AtomicInteger runs = new AtomicInteger();
+
+        wheel.schedule(Duration.ofMillis(100), runs::incrementAndGet);
+        wheel.close();
+
+        advanceBy(200);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void tickerThreadRunsDueTasks() throws Exception {
+        try (HierarchicalTimingWheel ticking = new HierarchicalTimingWheel("test", TICK, WHEEL_SIZE)) {
+            final long start = System.currentTimeMillis();
+            final CompletableFuture<Long> ranAt = new CompletableFuture<>();
+
+            ticking.schedule(Duration.ofMillis(30), () -> ranAt.complete(System.currentTimeMillis()));
+
+            // Seule la borne inférieure est garantie : la borne supérieure dépend de l’ordonnanceur
+            final long elapsed = ranAt.get(TIMEOUT_SECONDS, TimeUnit.SECONDS) - start;
+            assertTrue(elapsed >= 30, "ran after " + elapsed + " ms");
+        }
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HierarchicalTimingWheel("invalid", Duration.ZERO, WHEEL_SIZE));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HierarchicalTimingWheel("invalid", TICK, 1));
+    }
+
+    /** Fait avancer l’horloge case par case, comme le thread d’horloge */
+    private void advanceBy(long ms) {
+        for (long elapsed = 0; elapsed < ms; elapsed += TICK_MS) {
+            clock.addAndGet(TICK_MS);
+            wheel.advance();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Banc d’essai comparant {@link KeyedSequentialExecutor} au découpage en partitions fixes
+ * (un thread plateforme par cœur, clé hachée vers une partition) qu’il remplace.
+ *
+ * <p>
+ * Charge simulée : {@code KEYS} agrégats de {@code EVENTS_PER_KEY} événements chacun ;
+ * chaque projection attend {@code FAST_MILLIS} (aller-retour base de données), sauf pour
+ * une clé sur {@code SLOW_KEY_EVERY} qui attend {@code SLOW_MILLIS} (ligne verrouillée).
+ * On mesure la durée totale et la latence (soumission → fin) des clés rapides, qui révèle
+ * le blocage en tête de file derrière les clés lentes.
+ * </p>
+ *
+ * <p>
+ * Banc manuel, hors suite de tests : lancer la méthode {@link #main(String[])} depuis
+ * l’IDE ou avec {@code java} sur le classpath de test. Le premier argument, optionnel,
+ * fixe le nombre de partitions (par défaut le nombre de cœurs).
+ * </p>
+ */
+public final class KeyedSequentialExecutorBenchmark {
+
+    private static final int KEYS = 2_000;
+    private static final int EVENTS_PER_KEY = 5;
+    private static final int SLOW_KEY_EVERY = 100;
+    private static final long FAST_MILLIS = 1;
+    private static final long SLOW_MILLIS = 50;
+    private static final int ROUNDS = 3;
+
+    private KeyedSequentialExecutorBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int partitions = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        System.out.printf("keys=%d events/key=%d slow keys=1/%d fast=%dms slow=%dms partitions=%d%n",
+                KEYS, EVENTS_PER_KEY, SLOW_KEY_EVERY, FAST_MILLIS, SLOW_MILLIS, partitions);
+        for (int round = 1; round <= ROUNDS; round++) {
+            report("fixed-partitions", round, fixedPartitions(partitions));
+            report("keyed-virtual   ", round, keyedVirtual());
+        }
+    }
+
+    private static Result fixedPartitions(int partitions) throws Exception {
+        final ExecutorService[] lanes = new ExecutorService[partitions];
+        for (int i = 0; i < partitions; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor();
+        }
+        try {
+            return run((key, task) -> CompletableFuture.supplyAsync(task::get,
+                    lanes[Math.floorMod(Integer.hashCode(key), partitions)]));
+        } finally {
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+                lane.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        }
+    }
+
+    private static Result keyedVirtual() throws Exception {
+        try (KeyedSequentialExecutor<Integer> executor = new KeyedSequentialExecutor<>("bench", 4_096)) {
+            return run((key, task) -> executor.submit(key, task::get));
+        }
+    }
+
+    private static Result run(Submitter submitter) throws Exception {
+        final int[] lastSeen = new int[KEYS];
+        Arrays.fill(lastSeen, -1);
+        final long[] fastLatencies = new long[KEYS * EVENTS_PER_KEY];
+        final List<CompletableFuture<?>> futures = new ArrayList<>(KEYS * EVENTS_PER_KEY);
+        int fastCount = 0;
+
+        final long start = System.nanoTime();
+        for (int event = 0; event < EVENTS_PER_KEY; event++) {
+            for (int key = 0; key < KEYS; key++) {
+                final int k = key;
+                final int seq = event;
+                final boolean slow = key % SLOW_KEY_EVERY == 0;
+                final long submitted = System.nanoTime();
+                final int slot = slow ? -1 : fastCount++;
+                futures.add(submitter.submit(key, () -> {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(slow ? SLOW_MILLIS : FAST_MILLIS));
+                    if (lastSeen[k] != seq - 1) {
+                        throw new IllegalStateException("Out of order for key " + k);
+                    }
+                    lastSeen[k] = seq;
+                    if (slot >= 0) {
+                        fastLatencies[slot] = System.nanoTime() - submitted;
+                    }
+                    return null;
+                }));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        final long elapsed = System.nanoTime() - start;
+
+        final long[] latencies = Arrays.copyOf(fastLatencies, fastCount);
+        Arrays.sort(latencies);
+        return new Result(elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static void report(String name, int round, Result result) {
+        System.out.printf("%s round %d: total %6d ms, fast keys p50 %6d ms, p99 %6d ms%n", name, round,
+                TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos()),
+                TimeUnit.NANOSECONDS.toMillis(result.p50Nanos()),
+                TimeUnit.NANOSECONDS.toMillis(result.p99Nanos()));
+    }
+
+    @FunctionalInterface
+    private interface Submitter {
+        CompletableFuture<?> submit(int key, Task task) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        Object get();
+    }
+
+    private record Result(long elapsedNanos, long p50Nanos, long p99Nanos) {
+    }
+}
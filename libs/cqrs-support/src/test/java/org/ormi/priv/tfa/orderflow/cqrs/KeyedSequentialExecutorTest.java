@@ -0,0 +1,169 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class KeyedSequentialExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final KeyedSequentialExecutor<String> executor = new KeyedSequentialExecutor<>("test", 1_000);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void tasksOfSameKeyRunInSubmissionOrder() throws Exception {
+        final List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final int task = i;
+            futures.add(executor.submit("key", () -> {
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(100_000));
+                executed.add(task);
+                return task;
+            }));
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(IntStream.range(0, 200).boxed().toList(), executed);
+    }
+
+    @Test
+    void tasksOfEachKeyRunInSubmissionOrderAcrossKeys() throws Exception {
+        final Map<String, List<Integer>> executed = new HashMap<>();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (String key : List.of("a", "b", "c", "d")) {
+                final int task = i;
+                futures.add(executor.submit(key, () -> {
+                    LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(100_000));
+                    synchronized (executed) {
+                        executed.computeIfAbsent(key, k -> new ArrayList<>()).add(task);
+                    }
+                    return task;
+                }));
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        final List<Integer> expected = IntStream.range(0, 50).boxed().toList();
+        executed.values().forEach(tasks -> assertEquals(expected, tasks));
+        assertEquals(4, executed.size());
+    }
+
+    @Test
+    void slowKeyDoesNotBlockOtherKeys() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Boolean> slow = executor.submit("slow", () -> release.await(TIMEOUT_SECONDS,
+                TimeUnit.SECONDS));
+        final CompletableFuture<String> queuedBehindSlow = executor.submit("slow", () -> "after");
+
+        final CompletableFuture<String> fast = executor.submit("fast", () -> "done");
+
+        assertEquals("done", fast.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(slow.isDone());
+        assertFalse(queuedBehindSlow.isDone());
+
+        release.countDown();
+        assertTrue(slow.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("after", queuedBehindSlow.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedTaskDoesNotBreakTheChainOfItsKey() throws Exception {
+        final CompletableFuture<String> failed = executor.submit("key", () -> {
+            throw new IllegalStateException("boom");
+        });
+        final CompletableFuture<String> next = executor.submit("key", () -> "next");
+
+        final ExecutionException error = assertThrows(ExecutionException.class,
+                () -> failed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IllegalStateException);
+        assertEquals("next", next.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void checkedExceptionFailsTheFuture() throws Exception {
+        final CompletableFuture<String> failed = executor.submit("key", () -> {
+            throw new IOException("io");
+        });
+
+        final ExecutionException error = assertThrows(ExecutionException.class,
+                () -> failed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IOException);
+    }
+
+    @Test
+    void releasesKeysAndPermitsOnceTasksComplete() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Boolean> first = executor.submit("a", () -> release.await(TIMEOUT_SECONDS,
+                TimeUnit.SECONDS));
+        final CompletableFuture<Boolean> second = executor.submit("b", () -> release.await(TIMEOUT_SECONDS,
+                TimeUnit.SECONDS));
+
+        assertEquals(2, executor.pendingTasks());
+        assertEquals(2, executor.activeKeys());
+
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        awaitIdle();
+        assertEquals(0, executor.pendingTasks());
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    void submitBlocksWhenMaxPendingIsReached() throws Exception {
+        try (KeyedSequentialExecutor<String> bounded = new KeyedSequentialExecutor<>("bounded", 1)) {
+            final CountDownLatch release = new CountDownLatch(1);
+            bounded.submit("a", () -> release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            final CompletableFuture<CompletableFuture<String>> blocked = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return bounded.submit("b", () -> "b");
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            assertFalse(blocked.isDone());
+
+            release.countDown();
+            assertEquals("b", blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveMaxPending() {
+        assertThrows(IllegalArgumentException.class, () -> new KeyedSequentialExecutor<String>("invalid", 0));
+    }
+
+    /** Les permis sont rendus juste après la complétion des futures observées par le test */
+    private void awaitIdle() {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (executor.pendingTasks() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package org.ormi.priv.tfa.orderflow.cqrs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.AggregateState;
+import org.ormi.priv.tfa.orderflow.cqrs.Projector.ProjectionResult;
+
+class ProjectorTest {
+
+    private static final UUID AGGREGATE_ID = UUID.randomUUID();
+    private static final UUID OTHER_AGGREGATE_ID = UUID.randomUUID();
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /** Franchi seulement lorsque deux agrégats sont projetés en même temps */
+    private final CountDownLatch bothStarted = new CountDownLatch(2);
+
+    /** Projecteur de test : l’action portée par l’événement dicte le résultat de la projection */
+    private final Projector<List<String>, EventEnvelope<TestEvent>> projector = (current, ev) -> {
+        final String action = ev.event().action();
+        return switch (action) {
+            case "noop" -> ProjectionResult.noOp("Already applied");
+            case "fail" -> ProjectionResult.failed("Cannot apply " + ev.sequence());
+            case "pending" -> ProjectionResult.pending("Waiting before " + ev.sequence());
+            case "boom" -> throw new IllegalStateException("Boom at " + ev.sequence());
+            case "await" -> {
+                bothStarted.countDown();
+                yield awaitOtherAggregate() ? ProjectionResult.projected(List.of(action + ev.sequence()))
+                        : ProjectionResult.failed("Aggregates projected sequentially");
+            }
+            default -> {
+                final List<String> next = new ArrayList<>(current.orElse(List.of()));
+                next.add(action + ev.sequence());
+                yield ProjectionResult.projected(next);
+            }
+        };
+    };
+
+    @Test
+    void projectAllAppliesEventsInOrder() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.empty(),
+                events("a", "b", "c"));
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of("a1", "b2", "c3"), result.getProjection());
+    }
+
+    @Test
+    void projectAllSkipsEventsUpToInitialVersion() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.of(List.of("a1", "b2")),
+                events("a", "b", "c"), 2L);
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of("a1", "b2", "c3"), result.getProjection());
+    }
+
+    @Test
+    void projectAllReturnsNoOpWhenNoEventIsApplied() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.of(List.of("a1")),
+                events("noop", "noop"));
+
+        assertTrue(result.isNoOp());
+    }
+
+    @Test
+    void projectAllReturnsNoOpWhenAllEventsAreAlreadyApplied() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.of(List.of("a1", "b2")),
+                events("a", "b"), 2L);
+
+        assertTrue(result.isNoOp());
+    }
+
+    @Test
+    void projectAllKeepsStateAcrossNoOpEvents() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.empty(),
+                events("a", "noop", "c"));
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of("a1", "c3"), result.getProjection());
+    }
+
+    @Test
+    void projectAllStopsAtFirstFailure() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.empty(),
+                events("a", "fail", "c"));
+
+        assertTrue(result.isFailure());
+        assertEquals("Cannot apply 2", result.getError());
+    }
+
+    @Test
+    void projectAllStopsAtPendingEvent() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.empty(),
+                events("a", "pending", "c"));
+
+        assertTrue(result.isPending());
+        assertEquals("Waiting before 2", result.getPendingReason());
+    }
+
+    @Test
+    void projectAllStopsAtPendingEventAfterNoOp() {
+        final ProjectionResult<List<String>> result = projector.projectAll(Optional.of(List.of("a1")),
+                events("noop", "pending", "c"));
+
+        assertTrue(result.isPending());
+    }
+
+    @Test
+    void projectBatchGroupsEventsByAggregateInSequenceOrder() {
+        final List<EventEnvelope<TestEvent>> events = List.of(
+                event(OTHER_AGGREGATE_ID, "y", 2),
+                event(AGGREGATE_ID, "b", 2),
+                event(OTHER_AGGREGATE_ID, "x", 1),
+                event(AGGREGATE_ID, "a", 1),
+                event(AGGREGATE_ID, "c", 3));
+
+        final Map<UUID, ProjectionResult<List<String>>> results = projector.projectBatch(events,
+                id -> AggregateState.empty());
+
+        assertEquals(List.of(OTHER_AGGREGATE_ID, AGGREGATE_ID), List.copyOf(results.keySet()));
+        assertEquals(List.of("a1", "b2", "c3"), results.get(AGGREGATE_ID).getProjection());
+        assertEquals(List.of("x1", "y2"), results.get(OTHER_AGGREGATE_ID).getProjection());
+    }
+
+    @Test
+    void projectBatchStartsEachAggregateFromItsLookedUpVersion() {
+        final List<EventEnvelope<TestEvent>> events = List.of(
+                event(AGGREGATE_ID, "a", 1),
+                event(AGGREGATE_ID, "b", 2),
+                event(AGGREGATE_ID, "c", 3),
+                event(OTHER_AGGREGATE_ID, "x", 1));
+        final Map<UUID, AggregateState<List<String>>> states = Map.of(
+                AGGREGATE_ID, new AggregateState<>(Optional.of(List.of("a1", "b2")), 2L),
+                OTHER_AGGREGATE_ID, new AggregateState<>(Optional.of(List.of("x1")), 1L));
+
+        final Map<UUID, ProjectionResult<List<String>>> results = projector.projectBatch(events, states::get);
+
+        assertEquals(List.of("a1", "b2", "c3"), results.get(AGGREGATE_ID).getProjection());
+        assertTrue(results.get(OTHER_AGGREGATE_ID).isNoOp());
+    }
+
+    @Test
+    void projectBatchKeepsResultsOfEachAggregateApart() {
+        final List<EventEnvelope<TestEvent>> events = List.of(
+                event(AGGREGATE_ID, "a", 1),
+                event(AGGREGATE_ID, "fail", 2),
+                event(OTHER_AGGREGATE_ID, "x", 1),
+                event(OTHER_AGGREGATE_ID, "pending", 2));
+
+        final Map<UUID, ProjectionResult<List<String>>> results = projector.projectBatch(events,
+                id -> AggregateState.empty());
+
+        assertEquals("Cannot apply 2", results.get(AGGREGATE_ID).getError());
+        assertTrue(results.get(OTHER_AGGREGATE_ID).isPending());
+    }
+
+    @Test
+    void projectBatchProjectsAggregatesInParallel() {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final Map<UUID, ProjectionResult<List<String>>> results = projector.projectBatch(
+                    List.of(event(AGGREGATE_ID, "await", 1), event(OTHER_AGGREGATE_ID, "await", 1)),
+                    id -> AggregateState.empty(), pool);
+
+            results.values().forEach(result -> assertTrue(result.isSuccess(), result.getError()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void projectBatchRethrowsProjectionExceptions() {
+        final List<EventEnvelope<TestEvent>> events = List.of(
+                event(AGGREGATE_ID, "boom", 1),
+                event(OTHER_AGGREGATE_ID, "x", 1));
+
+        final IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> projector.projectBatch(events, id -> AggregateState.empty()));
+        // join() peut relancer une copie de l’exception, qui mentionne alors l’originale
+        assertTrue(error.getMessage().endsWith("Boom at 1"), error.getMessage());
+    }
+
+    @Test
+    void projectBatchRequiresAStateForEachAggregate() {
+        assertThrows(NullPointerException.class,
+                () -> projector.projectBatch(List.of(event(AGGREGATE_ID, "a", 1)), id -> null));
+    }
+
+    private boolean awaitOtherAggregate() {
+        try {
+            return bothStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Enveloppes de séquences 1, 2, … portant chacune l’action donnée */
+    private static List<EventEnvelope<TestEvent>> events(String... actions) {
+        final List<EventEnvelope<TestEvent>> events = new ArrayList<>();
+        for (int i = 0; i < actions.length; i++) {
+            events.add(event(AGGREGATE_ID, actions[i], (long) i + 1));
+        }
+        return events;
+    }
+
+    private static EventEnvelope<TestEvent> event(UUID aggregateId, String action, long sequence) {
+        return EventEnvelope.with(new TestEvent(aggregateId, action), sequence);
+    }
+
+    private record TestEvent(UUID aggregateId, String action) implements DomainEvent {
+
+        @Override
+        public String aggregateType() {
+            return "Test";
+        }
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public DomainEventPayload payload() {
+            return new DomainEventPayload.Empty();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.codec;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Banc d’essai comparant les codecs de payload de l’event log : taille encodée, débit
+ * d’encodage et débit de décodage.
+ *
+ * <p>
+ * Les payloads reprennent la forme des événements produit ({@code ProductRegistered},
+ * {@code ProductNameUpdated}, {@code ProductDescriptionUpdated}). Pour le codec JSON, la
+ * taille mesurée est celle du texte UTF-8 ; le stockage {@code jsonb} de PostgreSQL y
+ * ajoute son propre en-tête binaire.
+ * </p>
+ *
+ * <p>
+ * Banc manuel, hors suite de tests : lancer la méthode {@link #main(String[])} depuis
+ * l’IDE ou avec {@code java} sur le classpath de test.
+ * </p>
+ */
+public final class EventPayloadCodecBenchmark {
+
+    private static final int PAYLOADS = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 20;
+
+    private EventPayloadCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        final List<JsonNode> payloads = payloads();
+        for (EventPayloadCodec codec : List.of(EventPayloadCodecs.JSON, EventPayloadCodecs.SMILE)) {
+            final byte[][] encoded = new byte[payloads.size()][];
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                encodeAll(codec, payloads, encoded);
+                decodeAll(codec, encoded);
+            }
+
+            long encodeNanos = Long.MAX_VALUE;
+            long decodeNanos = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                encodeAll(codec, payloads, encoded);
+                encodeNanos = Math.min(encodeNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                decodeAll(codec, encoded);
+                decodeNanos = Math.min(decodeNanos, System.nanoTime() - start);
+            }
+
+            long bytes = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                if (!codec.decode(encoded[i]).equals(payloads.get(i))) {
+                    throw new IllegalStateException(codec.name() + " does not round-trip payload " + i);
+                }
+                bytes += encoded[i].length;
+            }
+            System.out.printf("%-5s: %6.1f bytes/payload, encode %7.0f ns/payload, decode %7.0f ns/payload%n",
+                    codec.name(), (double) bytes / encoded.length,
+                    (double) encodeNanos / encoded.length, (double) decodeNanos / encoded.length);
+        }
+    }
+
+    private static void encodeAll(EventPayloadCodec codec, List<JsonNode> payloads, byte[][] encoded) {
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = codec.encode(payloads.get(i));
+        }
+    }
+
+    private static void decodeAll(EventPayloadCodec codec, byte[][] encoded) {
+        for (byte[] bytes : encoded) {
+            if (codec.decode(bytes).isMissingNode()) {
+                throw new IllegalStateException("Empty payload");
+            }
+        }
+    }
+
+    private static List<JsonNode> payloads() {
+        final JsonNodeFactory nodes = JsonNodeFactory.instance;
+        return IntStream.range(0, PAYLOADS)
+                .<JsonNode>mapToObj(i -> {
+                    final ObjectNode payload = nodes.objectNode();
+                    switch (i % 3) {
+                        case 0 -> payload
+                                .put("skuId", "SKU-" + UUID.randomUUID().toString().substring(0, 8))
+                                .put("name", "Product " + i)
+                                .put("description", "Description of product " + i + " for the registry");
+                        case 1 -> payload
+                                .put("oldName", "Product " + i)
+                                .put("newName", "Renamed product " + i);
+                        default -> payload
+                                .put("oldDescription", "Description of product " + i)
+                                .put("newDescription", "Updated description of product " + i);
+                    }
+                    return payload;
+                })
+                .toList();
+    }
+}
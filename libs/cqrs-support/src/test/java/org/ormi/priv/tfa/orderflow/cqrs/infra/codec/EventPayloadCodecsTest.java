@@ -0,0 +1,99 @@
+package org.ormi.priv.tfa.orderflow.cqrs.infra.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+class EventPayloadCodecsTest {
+
+    private static final List<EventPayloadCodec> CODECS = List.of(EventPayloadCodecs.JSON, EventPayloadCodecs.SMILE);
+
+    @Test
+    void codecsRoundTripProductPayloads() {
+        final ObjectNode registered = JsonNodeFactory.instance.objectNode()
+                .put("skuId", "SKU-12345")
+                .put("name", "Laptop")
+                .put("description", "Gaming Laptop");
+        final ObjectNode renamed = JsonNodeFactory.instance.objectNode()
+                .put("oldName", "Laptop")
+                .put("newName", "Ordinateur portable « gamer » ✓");
+
+        for (EventPayloadCodec codec : CODECS) {
+            assertEquals(registered, codec.decode(codec.encode(registered)), codec.name());
+            assertEquals(renamed, codec.decode(codec.encode(renamed)), codec.name());
+        }
+    }
+
+    @Test
+    void codecsRoundTripNestedValuesAndScalars() {
+        final ObjectNode payload = JsonNodeFactory.instance.objectNode();
+        payload.put("@class", "org.example.Payload")
+                .put("count", 42)
+                .put("total", 1_234_567_890_123L)
+                .put("ratio", 0.25)
+                .put("active", true)
+                .putNull("removed");
+        payload.putArray("tags").add("a").add("b").add(3);
+        payload.putObject("nested").put("empty", "").putObject("deeper").put("x", -1);
+
+        for (EventPayloadCodec codec : CODECS) {
+            assertEquals(payload, codec.decode(codec.encode(payload)), codec.name());
+        }
+    }
+
+    @Test
+    void codecsRoundTripEmptyPayload() {
+        final JsonNode empty = JsonNodeFactory.instance.objectNode();
+
+        for (EventPayloadCodec codec : CODECS) {
+            assertEquals(empty, codec.decode(codec.encode(empty)), codec.name());
+        }
+    }
+
+    @Test
+    void smileIsMoreCompactThanJson() {
+        final ObjectNode payload = JsonNodeFactory.instance.objectNode()
+                .put("oldDescription", "Description of the product")
+                .put("newDescription", "Updated description of the product")
+                .put("version", 12);
+
+        assertTrue(EventPayloadCodecs.SMILE.encode(payload).length < EventPayloadCodecs.JSON.encode(payload).length);
+    }
+
+    @Test
+    void codecIdsAreStable() {
+        assertEquals(0, EventPayloadCodecs.JSON.id());
+        assertEquals(1, EventPayloadCodecs.SMILE.id());
+    }
+
+    @Test
+    void resolvesCodecsByIdAndName() {
+        for (EventPayloadCodec codec : CODECS) {
+            assertSame(codec, EventPayloadCodecs.byId(codec.id()));
+            assertSame(codec, EventPayloadCodecs.byName(codec.name()));
+            assertSame(codec, EventPayloadCodecs.byName(codec.name().toUpperCase()));
+        }
+    }
+
+    @Test
+    void rejectsUnknownCodecs() {
+        assertThrows(IllegalArgumentException.class, () -> EventPayloadCodecs.byId((short) 99));
+        assertThrows(IllegalArgumentException.class, () -> EventPayloadCodecs.byName("cbor"));
+    }
+
+    @Test
+    void rejectsMalformedPayloads() {
+        assertThrows(UncheckedIOException.class, () -> EventPayloadCodecs.JSON.decode(new byte[] { '{', '"' }));
+        assertThrows(UncheckedIOException.class, () -> EventPayloadCodecs.SMILE.decode(new byte[] { (byte) 0xFA }));
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Optional;
 import org.ormi.priv.tfa.orderflow.kernel.product.ProductId;
 import org.ormi.priv.tfa.orderflow.kernel.product.SkuId;
 import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
+import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView.ProductViewEvent;
 
 /**
  * Interface représentant le dépôt de persistance des vues de produits ({@link ProductView}).
@@ -19,6 +20,7 @@ import org.ormi.priv.tfa.orderflow.kernel.product.views.ProductView;
  * <ul>
  *     <li>Persister ou mettre à jour les {@link ProductView} dans le dépôt.</li>
  *     <li>Récupérer un {@link ProductView} par son identifiant unique {@link ProductId} ou par son {@link SkuId}.</li>
+ *     <li>Charger à la demande l’historique des événements d’un produit.</li>
  *     <li>Effectuer des recherches paginées et filtrées par motif SKU.</li>
  *     <li>Fournir un comptage des résultats correspondant à un motif SKU pour la pagination.</li>
  * </ul>
@@ -46,6 +48,10 @@ public interface ProductViewRepository {
 
     /**
      * Sauvegarde ou met à jour une projection {@link ProductView}.
+     * <p>
+     * Les événements portés par la vue ({@link ProductView#getEvents()}) sont ajoutés à
+     * l’historique du produit ; un événement déjà présent (même séquence) est ignoré.
+     * </p>
      *
      * @param productView la vue du produit à persister
      */
@@ -53,12 +59,24 @@ public interface ProductViewRepository {
 
     /**
      * Recherche une vue de produit par son identifiant unique.
+     * <p>
+     * L’historique n’est pas chargé : la vue retournée ne porte aucun événement.
+     * </p>
      *
      * @param id l'identifiant du produit
      * @return un {@link Optional} contenant la vue si trouvée, ou vide sinon
+     * @see #findHistory(ProductId)
      */
     Optional<ProductView> findById(ProductId id);
 
+    /**
+     * Charge l’historique des événements d’un produit.
+     *
+     * @param id l'identifiant du produit
+     * @return les événements du produit triés par séquence croissante, vide si inconnu
+     */
+    List<ProductViewEvent> findHistory(ProductId id);
+
     /**
      * Recherche une vue de produit par son identifiant SKU.
      *
@@ -27,7 +27,7 @@ import lombok.Getter;
  *     <li>Nom et description</li>
  *     <li>Statut du cycle de vie ({@link ProductLifecycle})</li>
  *     <li>Références vers les catalogues associés ({@link ProductViewCatalogRef})</li>
- *     <li>Historique des événements liés au produit ({@link ProductViewEvent})</li>
+ *     <li>Événements de l’historique du produit portés par l’instance ({@link ProductViewEvent}, voir ci-dessous)</li>
  *     <li>Dates de création et de dernière mise à jour</li>
  * </ul>
  *
@@ -55,6 +55,14 @@ import lombok.Getter;
  * }</pre>
  *
  * <p>
+ * L’historique complet n’est pas porté par la vue : il est stocké en insertion seule et
+ * chargé à la demande ({@link org.ormi.priv.tfa.orderflow.kernel.product.persistence.ProductViewRepository#findHistory}).
+ * Une vue lue pour projection ne porte que les événements projetés depuis sa lecture,
+ * ajoutés à l’historique lors de sa sauvegarde ; le coût d’une projection ne dépend donc
+ * pas de l’âge du produit.
+ * </p>
+ *
+ * <p>
  * La validation automatique garantit que tous les champs obligatoires (@NotNull, @NotBlank) sont renseignés.
  * En cas de violation, une {@link ConstraintViolationException} est levée.
  * </p>
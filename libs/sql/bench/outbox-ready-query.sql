@@ -0,0 +1,97 @@
+-- Benchmark de la requête de sélection des messages prêts de l’outbox.
+--
+-- Alimente l’event log et l’outbox avec :rows messages (1 000 000 par défaut) répartis sur
+-- :aggregates agrégats, dont une fraction bloquée par un retry planifié ou un bail actif,
+-- puis mesure la latence de la requête de réservation et affiche son plan.
+-- Tout est exécuté dans une transaction annulée : la base n’est pas modifiée.
+--
+-- Usage :
+--   psql -d order_flow -v rows=1000000 -v aggregates=100000 -f libs/sql/bench/outbox-ready-query.sql
+
+\set ON_ERROR_STOP on
+\if :{?rows}
+\else
+  \set rows 1000000
+\endif
+\if :{?aggregates}
+\else
+  \set aggregates 100000
+\endif
+
+BEGIN;
+
+CREATE TEMP TABLE bench_aggregate ON COMMIT DROP AS
+SELECT gen_random_uuid() AS aggregate_id, n
+FROM generate_series(1, :aggregates) AS n;
+
+INSERT INTO eventing.event_log (aggregate_type, aggregate_id, aggregate_version, event_type, event_version, payload)
+SELECT 'PRODUCT', a.aggregate_id, v, 'ProductUpdated', 1, '{}'::jsonb
+FROM bench_aggregate a
+CROSS JOIN generate_series(1, CEIL(:rows::numeric / :aggregates)::int) AS v;
+
+INSERT INTO eventing.outbox (event_id, attempts, next_attempt_at, lease_until, claimed_by,
+                             aggregate_type, aggregate_id, aggregate_version)
+SELECT e.id,
+       CASE WHEN a.n % 50 = 0 THEN 1 ELSE 0 END,
+       -- 2 % des agrégats attendent un retry, 1 % sont réservés par une autre instance
+       CASE WHEN a.n % 50 = 0 AND e.aggregate_version = 1 THEN CURRENT_TIMESTAMP + INTERVAL '5 minutes' END,
+       CASE WHEN a.n % 100 = 1 AND e.aggregate_version = 1 THEN CURRENT_TIMESTAMP + INTERVAL '30 seconds' END,
+       CASE WHEN a.n % 100 = 1 AND e.aggregate_version = 1 THEN 'bench-other-instance' END,
+       e.aggregate_type, e.aggregate_id, e.aggregate_version
+FROM eventing.event_log e
+JOIN bench_aggregate a ON a.aggregate_id = e.aggregate_id;
+
+ANALYZE eventing.event_log;
+ANALYZE eventing.outbox;
+
+SELECT count(*) AS outbox_rows FROM eventing.outbox;
+
+\timing on
+
+-- Requête de réservation, 64 partitions toutes détenues, lot maximal du poller
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+UPDATE eventing.outbox o
+SET claimed_by = 'bench', lease_until = CURRENT_TIMESTAMP + INTERVAL '30 seconds'
+WHERE o.id IN (
+    SELECT c.id FROM eventing.outbox c
+    WHERE c.processed_at IS NULL
+    AND c.aggregate_type = 'PRODUCT'
+    AND c.attempts < 6
+    AND (hashtext(c.aggregate_id::text) & 2147483647) % 64 IN (SELECT generate_series(0, 63))
+    AND (c.next_attempt_at <= CURRENT_TIMESTAMP OR c.next_attempt_at IS NULL)
+    AND (c.lease_until IS NULL OR c.lease_until < CURRENT_TIMESTAMP OR c.claimed_by = 'bench')
+    AND NOT EXISTS (
+        SELECT 1 FROM eventing.outbox h
+        WHERE h.aggregate_id = c.aggregate_id
+        AND h.processed_at IS NULL
+        AND (h.next_attempt_at IS NOT NULL OR h.lease_until IS NOT NULL)
+        AND (h.next_attempt_at > CURRENT_TIMESTAMP
+            OR (h.lease_until >= CURRENT_TIMESTAMP AND h.claimed_by <> 'bench'))
+    )
+    AND pg_try_advisory_xact_lock(hashtext(c.aggregate_type), hashtext(c.aggregate_id::text))
+    ORDER BY c.aggregate_id, c.aggregate_version
+    LIMIT 1000
+    FOR UPDATE OF c SKIP LOCKED
+)
+RETURNING o.id;
+
+-- Régime normal : lot de 10
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT o.id FROM eventing.outbox o
+WHERE o.processed_at IS NULL
+AND o.aggregate_type = 'PRODUCT'
+AND o.attempts < 6
+AND (o.next_attempt_at <= CURRENT_TIMESTAMP OR o.next_attempt_at IS NULL)
+AND NOT EXISTS (
+    SELECT 1 FROM eventing.outbox h
+    WHERE h.aggregate_id = o.aggregate_id
+    AND h.processed_at IS NULL
+    AND (h.next_attempt_at IS NOT NULL OR h.lease_until IS NOT NULL)
+    AND h.next_attempt_at > CURRENT_TIMESTAMP
+)
+ORDER BY o.aggregate_id, o.aggregate_version
+LIMIT 10;
+
+\timing off
+
+ROLLBACK;